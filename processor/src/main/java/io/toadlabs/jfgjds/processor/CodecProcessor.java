@@ -0,0 +1,483 @@
+package io.toadlabs.jfgjds.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a codec for each type annotated with
+ * <code>io.toadlabs.jfgjds.GenerateCodec</code>. The codec reads with a
+ * switch on each key and writes keys which are encoded ahead of time, reaching
+ * fields, accessors and constructors directly, so it needs no reflection.
+ * Types which it can't handle itself, such as collections, are passed on to
+ * <code>JsonBinder</code>.
+ */
+@SupportedAnnotationTypes("io.toadlabs.jfgjds.GenerateCodec")
+public final class CodecProcessor extends AbstractProcessor {
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		for (TypeElement annotation : annotations) {
+			for (Element element : round.getElementsAnnotatedWith(annotation)) {
+				try {
+					generate((TypeElement) element);
+				} catch (InvalidTypeException error) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, error.getMessage(),
+							error.element);
+				} catch (IOException error) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+							"Cannot write codec: " + error, element);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private void generate(TypeElement type) throws IOException, InvalidTypeException {
+		check(type);
+
+		boolean record = type.getKind().name().equals("RECORD");
+		List<Property> properties = record ? components(type) : fields(type);
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		String binary = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String prefix = pkg.isUnnamed() ? "" : pkg.getQualifiedName() + ".";
+		String name = binary.substring(prefix.length()).replace('$', '_') + "_JsonCodec";
+		String target = type.getQualifiedName().toString();
+
+		StringBuilder out = new StringBuilder();
+
+		if (!pkg.isUnnamed()) {
+			out.append("package ").append(pkg.getQualifiedName()).append(";\n\n");
+		}
+
+		out.append("import java.io.IOException;\n\n");
+		out.append("import io.toadlabs.jfgjds.CodecSupport;\n");
+		out.append("import io.toadlabs.jfgjds.JsonCodec;\n");
+		out.append("import io.toadlabs.jfgjds.JsonName;\n");
+		out.append("import io.toadlabs.jfgjds.JsonReader;\n");
+		out.append("import io.toadlabs.jfgjds.JsonToken;\n");
+		out.append("import io.toadlabs.jfgjds.JsonWriter;\n\n");
+		out.append("// Generated by jfgjds-processor from ").append(target).append(". Do not edit.\n");
+		out.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		out.append("public final class ").append(name).append(" implements JsonCodec<").append(target)
+				.append("> {\n\n");
+
+		for (int index = 0; index < properties.size(); index++) {
+			out.append("\tprivate static final JsonName NAME_").append(index).append(" = JsonName.of(\"")
+					.append(properties.get(index).name).append("\");\n");
+		}
+
+		for (int index = 0; index < properties.size(); index++) {
+			Property property = properties.get(index);
+
+			if (property.kind == Kind.OTHER_PRIMITIVE || property.kind == Kind.REFERENCE) {
+				out.append("\tprivate final CodecSupport.Reference codec").append(index)
+						.append(" = CodecSupport.reference(").append(typeExpression(property)).append(");\n");
+			}
+		}
+
+		// reading
+		out.append("\n\t@Override\n\tpublic ").append(target)
+				.append(" read(JsonReader reader) throws IOException {\n");
+		out.append("\t\tCodecSupport.expect(reader, JsonToken.BEGIN_OBJECT);\n");
+
+		if (record) {
+			for (int index = 0; index < properties.size(); index++) {
+				Property property = properties.get(index);
+				out.append("\t\t").append(erasure(property.type)).append(" component").append(index).append(" = ")
+						.append(defaultValue(property.type)).append(";\n");
+			}
+		} else {
+			out.append("\t\t").append(target).append(" value = new ").append(target).append("();\n");
+		}
+
+		out.append("\n\t\treader.beginObject();\n\n");
+		out.append("\t\twhile (reader.hasNext()) {\n");
+		out.append("\t\t\tswitch (reader.nextName()) {\n");
+
+		for (int index = 0; index < properties.size(); index++) {
+			Property property = properties.get(index);
+			String setter = record ? "component" + index + " = %s;" : property.setter;
+			out.append("\t\t\tcase \"").append(property.name).append("\":\n");
+
+			switch (property.kind) {
+			case INT:
+			case LONG:
+			case DOUBLE:
+				out.append("\t\t\t\tCodecSupport.expect(reader, JsonToken.NUMBER);\n");
+				break;
+			case BOOLEAN:
+				out.append("\t\t\t\tCodecSupport.expect(reader, JsonToken.BOOLEAN);\n");
+				break;
+			default:
+				break;
+			}
+
+			out.append("\t\t\t\t").append(String.format(setter, readExpression(property, index))).append('\n');
+			out.append("\t\t\t\tbreak;\n");
+		}
+
+		out.append("\t\t\tdefault:\n\t\t\t\treader.skipValue();\n\t\t\t\tbreak;\n");
+		out.append("\t\t\t}\n\t\t}\n\n");
+		out.append("\t\treader.endObject();\n");
+
+		if (record) {
+			out.append("\t\treturn new ").append(target).append('(');
+
+			for (int index = 0; index < properties.size(); index++) {
+				out.append(index == 0 ? "" : ", ").append("component").append(index);
+			}
+
+			out.append(");\n");
+		} else {
+			out.append("\t\treturn value;\n");
+		}
+
+		out.append("\t}\n\n");
+
+		// writing
+		out.append("\t@Override\n\tpublic void write(JsonWriter writer, ").append(target)
+				.append(" value) throws IOException {\n");
+		out.append("\t\twriter.beginObject();\n");
+
+		for (int index = 0; index < properties.size(); index++) {
+			Property property = properties.get(index);
+			out.append("\t\twriter.name(NAME_").append(index).append(");\n");
+			out.append("\t\t").append(writeStatement(property, index)).append('\n');
+		}
+
+		out.append("\t\twriter.endObject();\n");
+		out.append("\t}\n\n}\n");
+
+		try (Writer writer = processingEnv.getFiler().createSourceFile(prefix + name, type).openWriter()) {
+			writer.write(out.toString());
+		}
+	}
+
+	private void check(TypeElement type) throws InvalidTypeException {
+		String kind = type.getKind().name();
+
+		if (!kind.equals("CLASS") && !kind.equals("RECORD")) {
+			throw new InvalidTypeException("Codecs can only be generated for classes and records", type);
+		} else if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+			throw new InvalidTypeException("Codecs can't be generated for abstract classes", type);
+		} else if (!type.getTypeParameters().isEmpty()) {
+			throw new InvalidTypeException("Codecs can't be generated for generic types", type);
+		} else if (type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER) {
+			throw new InvalidTypeException("Codecs can't be generated for local or anonymous classes", type);
+		}
+
+		for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+			if (current.getModifiers().contains(Modifier.PRIVATE)) {
+				throw new InvalidTypeException("Codecs can't be generated for private types", type);
+			} else if (((TypeElement) current).getNestingKind() == NestingKind.MEMBER
+					&& !current.getModifiers().contains(Modifier.STATIC) && current.getKind() == ElementKind.CLASS) {
+				throw new InvalidTypeException("Codecs can't be generated for inner classes", type);
+			}
+		}
+
+		if (kind.equals("CLASS")) {
+			for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+				if (constructor.getParameters().isEmpty() && accessible(constructor, type)) {
+					return;
+				}
+			}
+
+			throw new InvalidTypeException("A constructor without arguments which isn't private is needed", type);
+		}
+	}
+
+	private List<Property> components(TypeElement type) {
+		List<Property> result = new ArrayList<>();
+
+		for (Element element : type.getEnclosedElements()) {
+			if (element.getKind().name().equals("RECORD_COMPONENT")) {
+				String name = element.getSimpleName().toString();
+				result.add(new Property(name, element.asType(), type, "value." + name + "()", null));
+			}
+		}
+
+		return result;
+	}
+
+	private List<Property> fields(TypeElement type) throws InvalidTypeException {
+		Deque<TypeElement> hierarchy = new ArrayDeque<>();
+
+		for (TypeElement current = type; current != null; current = superclass(current)) {
+			hierarchy.push(current);
+		}
+
+		// those of subclasses replace those which they hide
+		Map<String, Property> result = new LinkedHashMap<>();
+		List<ExecutableElement> methods = ElementFilter
+				.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+		// members as seen from the annotated type, so that inherited type variables are resolved
+		DeclaredType self = (DeclaredType) type.asType();
+
+		for (TypeElement current : hierarchy) {
+			for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+				Set<Modifier> modifiers = field.getModifiers();
+
+				if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+					continue;
+				}
+
+				String name = field.getSimpleName().toString();
+				TypeMirror fieldType = processingEnv.getTypeUtils().asMemberOf(self, field);
+				String getter = null;
+				String setter = null;
+
+				if (accessible(field, type)) {
+					getter = "value." + name;
+
+					if (!modifiers.contains(Modifier.FINAL)) {
+						setter = "value." + name + " = %s;";
+					}
+				}
+
+				String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+				for (ExecutableElement method : methods) {
+					String methodName = method.getSimpleName().toString();
+
+					if (method.getModifiers().contains(Modifier.STATIC) || !accessible(method, type)) {
+						continue;
+					}
+
+					ExecutableType signature = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(self, method);
+
+					if (getter == null && method.getParameters().isEmpty()
+							&& (methodName.equals("get" + suffix) || methodName.equals("is" + suffix))
+							&& processingEnv.getTypeUtils().isSameType(signature.getReturnType(), fieldType)) {
+						getter = "value." + methodName + "()";
+					} else if (setter == null && method.getParameters().size() == 1
+							&& methodName.equals("set" + suffix) && processingEnv.getTypeUtils()
+									.isSameType(signature.getParameterTypes().get(0), fieldType)) {
+						setter = "value." + methodName + "(%s);";
+					}
+				}
+
+				if (getter == null || setter == null) {
+					throw new InvalidTypeException("Field " + name + " needs to be reachable from " + type.getSimpleName()
+							+ "'s package, or to have a getter and setter which are", field);
+				}
+
+				result.put(name, new Property(name, fieldType, type, getter, setter));
+			}
+		}
+
+		return new ArrayList<>(result.values());
+	}
+
+	private TypeElement superclass(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+
+		TypeElement result = (TypeElement) ((DeclaredType) superclass).asElement();
+		return result.getQualifiedName().contentEquals("java.lang.Object") ? null : result;
+	}
+
+	/**
+	 * Gets whether an element can be reached from the package of the generated
+	 * codec, which isn't a subclass.
+	 */
+	private boolean accessible(Element element, TypeElement from) {
+		Set<Modifier> modifiers = element.getModifiers();
+
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			return true;
+		} else if (modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		}
+
+		return processingEnv.getElementUtils().getPackageOf(element)
+				.equals(processingEnv.getElementUtils().getPackageOf(from));
+	}
+
+	private String readExpression(Property property, int index) {
+		switch (property.kind) {
+		case INT:
+			return "reader.nextInt()";
+		case LONG:
+			return "reader.nextLong()";
+		case DOUBLE:
+			return "reader.nextDouble()";
+		case BOOLEAN:
+			return "reader.nextBoolean()";
+		case STRING:
+			return "CodecSupport.nextString(reader)";
+		case OTHER_PRIMITIVE:
+			// the codecs of primitives don't accept null
+			return "(" + processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils()
+					.getPrimitiveType(property.type.getKind())).getQualifiedName() + ") codec" + index
+					+ ".get().read(reader)";
+		default:
+			return "(" + erasure(property.type) + ") codec" + index + ".read(reader)";
+		}
+	}
+
+	private String writeStatement(Property property, int index) {
+		switch (property.kind) {
+		case INT:
+			return "writer.value((long) " + property.getter + ");";
+		case LONG:
+		case DOUBLE:
+		case BOOLEAN:
+		case STRING:
+			return "writer.value(" + property.getter + ");";
+		case OTHER_PRIMITIVE:
+			return "codec" + index + ".get().write(writer, " + property.getter + ");";
+		default:
+			return "codec" + index + ".write(writer, " + property.getter + ");";
+		}
+	}
+
+	/**
+	 * Gets an expression for the type of a property, with its type arguments if
+	 * it has any.
+	 */
+	private String typeExpression(Property property) {
+		if (isGeneric(property.type)) {
+			return property.owner.getQualifiedName() + ".class, \"" + property.name + "\"";
+		}
+
+		return erasure(property.type) + ".class";
+	}
+
+	private static boolean isGeneric(TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			return isGeneric(((ArrayType) type).getComponentType());
+		} else if (type.getKind() == TypeKind.DECLARED) {
+			return !((DeclaredType) type).getTypeArguments().isEmpty();
+		}
+
+		return type.getKind() == TypeKind.TYPEVAR || type.getKind() == TypeKind.WILDCARD;
+	}
+
+	private String erasure(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private static String defaultValue(TypeMirror type) {
+		switch (type.getKind()) {
+		case BOOLEAN:
+			return "false";
+		case CHAR:
+			return "'\\0'";
+		case BYTE:
+			return "(byte) 0";
+		case SHORT:
+			return "(short) 0";
+		case INT:
+			return "0";
+		case LONG:
+			return "0L";
+		case FLOAT:
+			return "0.0F";
+		case DOUBLE:
+			return "0.0";
+		default:
+			return "null";
+		}
+	}
+
+	private enum Kind {
+		INT, LONG, DOUBLE, BOOLEAN, STRING, OTHER_PRIMITIVE, REFERENCE
+	}
+
+	private static final class Property {
+
+		final String name;
+		final TypeMirror type;
+		// the annotated type, which the codec resolves the property's type against
+		final TypeElement owner;
+		// an expression which gets it from "value"
+		final String getter;
+		// a statement which sets it on "value", with %s for the new value
+		final String setter;
+		final Kind kind;
+
+		Property(String name, TypeMirror type, TypeElement owner, String getter, String setter) {
+			this.name = name;
+			this.type = type;
+			this.owner = owner;
+			this.getter = getter;
+			this.setter = setter;
+
+			switch (type.getKind()) {
+			case INT:
+				kind = Kind.INT;
+				break;
+			case LONG:
+				kind = Kind.LONG;
+				break;
+			case DOUBLE:
+				kind = Kind.DOUBLE;
+				break;
+			case BOOLEAN:
+				kind = Kind.BOOLEAN;
+				break;
+			case CHAR:
+			case BYTE:
+			case SHORT:
+			case FLOAT:
+				kind = Kind.OTHER_PRIMITIVE;
+				break;
+			default:
+				kind = type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type).asElement())
+						.getQualifiedName().contentEquals("java.lang.String") ? Kind.STRING : Kind.REFERENCE;
+				break;
+			}
+		}
+
+	}
+
+	private static final class InvalidTypeException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		final transient Element element;
+
+		InvalidTypeException(String message, Element element) {
+			super(message);
+			this.element = element;
+		}
+
+	}
+
+}
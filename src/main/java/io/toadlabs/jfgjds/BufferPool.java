@@ -0,0 +1,218 @@
+package io.toadlabs.jfgjds;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A pool of scratch buffers for the parser and serializer. Each thread keeps
+ * its own buffers, so taking and giving never contends with other threads.
+ * Output buffers are sized after a running average of the documents written,
+ * and buffers far larger than that are dropped rather than kept around.
+ */
+public final class BufferPool {
+
+	private static volatile BufferPool defaultPool = new BufferPool(1024, 1 << 20);
+
+	private final int minSize;
+	private final int maxSize;
+	private final ThreadLocal<Slot> slots = new ThreadLocal<Slot>() {
+
+		@Override
+		protected Slot initialValue() {
+			return new Slot();
+		}
+
+	};
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	// Updated without synchronisation - a lost sample doesn't matter.
+	private volatile int typicalSize;
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param minSize The size to allocate output buffers with before any
+	 *                documents have been seen.
+	 * @param maxSize The largest buffer which will be kept for reuse.
+	 */
+	public BufferPool(int minSize, int maxSize) {
+		if (minSize <= 0 || maxSize < minSize) {
+			throw new IllegalArgumentException("Invalid sizes: min " + minSize + ", max " + maxSize);
+		}
+
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		typicalSize = minSize;
+	}
+
+	/**
+	 * Gets the pool used by the parser and serializer.
+	 *
+	 * @return The pool.
+	 */
+	public static @NotNull BufferPool getDefault() {
+		return defaultPool;
+	}
+
+	/**
+	 * Sets the pool used by the parser and serializer. Parsers which already
+	 * hold a buffer will keep it.
+	 *
+	 * @param pool The pool.
+	 */
+	public static void setDefault(@NotNull BufferPool pool) {
+		defaultPool = Objects.requireNonNull(pool);
+	}
+
+	/**
+	 * Takes a char array from the pool, or allocates one.
+	 *
+	 * @param minCapacity The minimum length.
+	 * @return The array.
+	 */
+	public char @NotNull [] takeChars(int minCapacity) {
+		Slot slot = slots.get();
+		char[] result = slot.chars;
+
+		if (result != null && result.length >= minCapacity) {
+			slot.chars = null;
+			hits.increment();
+			return result;
+		}
+
+		misses.increment();
+		return new char[minCapacity];
+	}
+
+	/**
+	 * Gives a char array back to the pool.
+	 *
+	 * @param buffer The array.
+	 */
+	public void giveChars(char @NotNull [] buffer) {
+		if (buffer.length <= maxSize) {
+			slots.get().chars = buffer;
+		}
+	}
+
+	/**
+	 * Takes a byte array from the pool, or allocates one.
+	 *
+	 * @param minCapacity The minimum length.
+	 * @return The array.
+	 */
+	public byte @NotNull [] takeBytes(int minCapacity) {
+		Slot slot = slots.get();
+		byte[] result = slot.bytes;
+
+		if (result != null && result.length >= minCapacity) {
+			slot.bytes = null;
+			hits.increment();
+			return result;
+		}
+
+		misses.increment();
+		return new byte[minCapacity];
+	}
+
+	/**
+	 * Gives a byte array back to the pool.
+	 *
+	 * @param buffer The array.
+	 */
+	public void giveBytes(byte @NotNull [] buffer) {
+		if (buffer.length <= maxSize) {
+			slots.get().bytes = buffer;
+		}
+	}
+
+	/**
+	 * Takes an empty string builder from the pool, or allocates one with the
+	 * typical document size.
+	 *
+	 * @return The builder.
+	 */
+	public @NotNull StringBuilder takeBuilder() {
+		Slot slot = slots.get();
+		StringBuilder result = slot.builder;
+
+		if (result != null) {
+			slot.builder = null;
+			result.setLength(0);
+			hits.increment();
+			return result;
+		}
+
+		misses.increment();
+		return new StringBuilder(typicalSize);
+	}
+
+	/**
+	 * Gives a string builder back to the pool, recording its length as a
+	 * document size.
+	 *
+	 * @param builder The builder.
+	 */
+	public void giveBuilder(@NotNull StringBuilder builder) {
+		int typical = record(builder.length());
+
+		// don't let one huge document pin its buffer forever
+		if (builder.capacity() <= maxSize && builder.capacity() <= typical << 2) {
+			slots.get().builder = builder;
+		}
+	}
+
+	private int record(int size) {
+		int typical = typicalSize;
+		typical = Math.max(minSize, Math.min(maxSize, typical + ((size - typical) >> 3)));
+		typicalSize = typical;
+		return typical;
+	}
+
+	/**
+	 * Gets the running average of document sizes, which new output buffers are
+	 * allocated with.
+	 *
+	 * @return The size in characters.
+	 */
+	public int getTypicalSize() {
+		return typicalSize;
+	}
+
+	/**
+	 * Gets the number of times a buffer was reused.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of times a buffer had to be allocated.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Resets the hit and miss counters.
+	 */
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+	}
+
+	private static final class Slot {
+
+		char[] chars;
+		byte[] bytes;
+		StringBuilder builder;
+
+	}
+
+}
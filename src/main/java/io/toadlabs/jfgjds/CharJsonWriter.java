@@ -0,0 +1,198 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writer engine for character sinks, or byte sinks through a charset encoder.
+ */
+final class CharJsonWriter extends JsonWriter {
+
+	private static final int BUFFER_SIZE = 8192;
+	private Writer writer;
+	private StringBuilder builder;
+	private OutputStream out;
+	private CharsetEncoder encoder;
+	private byte[] bytes;
+	private ByteBuffer target;
+	private char[] buffer = BufferPool.getDefault().takeChars(BUFFER_SIZE);
+	private int pos;
+	// numbers are formatted as ASCII, then widened into the buffer
+	private final byte[] digits = new byte[DoubleConversion.MAX_LENGTH];
+
+	CharJsonWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	CharJsonWriter(StringBuilder builder) {
+		this.builder = builder;
+	}
+
+	CharJsonWriter(OutputStream out, CharsetEncoder encoder) {
+		this.out = out;
+		this.encoder = encoder;
+		bytes = BufferPool.getDefault().takeBytes(BUFFER_SIZE);
+		target = ByteBuffer.wrap(bytes);
+	}
+
+	@Override
+	void writeRaw(char character) throws IOException {
+		if (pos == buffer.length) {
+			flushBuffer(false);
+		}
+
+		buffer[pos++] = character;
+	}
+
+	@Override
+	void writeRaw(String string) throws IOException {
+		write(string, 0, string.length());
+	}
+
+	@Override
+	void writeString(String string) throws IOException {
+		writeRaw('"');
+
+		int length = string.length();
+		int start = 0;
+
+		for (int index = 0; index < length; index++) {
+			char character = string.charAt(index);
+			String escape;
+
+			if (character < 0x80 && (escape = ESCAPES[character]) != null) {
+				write(string, start, index);
+				writeRaw(escape);
+				start = index + 1;
+			}
+		}
+
+		write(string, start, length);
+		writeRaw('"');
+	}
+
+	private void write(String string, int start, int end) throws IOException {
+		while (start < end) {
+			if (pos == buffer.length) {
+				flushBuffer(false);
+			}
+
+			int count = Math.min(end - start, buffer.length - pos);
+			string.getChars(start, start + count, buffer, pos);
+			pos += count;
+			start += count;
+		}
+	}
+
+	@Override
+	void writeDouble(double value) throws IOException {
+		writeDigits(DoubleConversion.format(value, digits, 0));
+	}
+
+	@Override
+	void writeLong(long value) throws IOException {
+		writeDigits(DoubleConversion.formatLong(value, digits, 0));
+	}
+
+	@Override
+	void writeUtf8(byte[] bytes) throws IOException {
+		writeRaw(new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	void writeName(JsonName name) throws IOException {
+		writeRaw(name.encoded);
+	}
+
+	private void writeDigits(int length) throws IOException {
+		if (buffer.length - pos < length) {
+			flushBuffer(false);
+		}
+
+		for (int index = 0; index < length; index++) {
+			buffer[pos++] = (char) digits[index];
+		}
+	}
+
+	@Override
+	void flushBuffer(boolean end) throws IOException {
+		if (buffer == null) {
+			// already finished
+			return;
+		} else if (writer != null) {
+			writer.write(buffer, 0, pos);
+		} else if (builder != null) {
+			builder.append(buffer, 0, pos);
+		} else {
+			encode(end);
+			return;
+		}
+
+		pos = 0;
+	}
+
+	private void encode(boolean endOfInput) throws IOException {
+		CharBuffer source = CharBuffer.wrap(buffer, 0, pos);
+
+		while (encoder.encode(source, target, endOfInput).isOverflow()) {
+			drain();
+		}
+
+		if (endOfInput) {
+			while (encoder.flush(target).isOverflow()) {
+				drain();
+			}
+		}
+
+		drain();
+
+		// a high surrogate can be left over until its pair arrives
+		int remaining = source.remaining();
+		System.arraycopy(buffer, source.position(), buffer, 0, remaining);
+		pos = remaining;
+	}
+
+	private void drain() throws IOException {
+		out.write(bytes, 0, target.position());
+		target.clear();
+	}
+
+	@Override
+	void flushSink() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		} else if (out != null) {
+			out.flush();
+		}
+	}
+
+	@Override
+	void closeSink() throws IOException {
+		if (writer != null) {
+			writer.close();
+		} else if (out != null) {
+			out.close();
+		}
+	}
+
+	@Override
+	void recycle() {
+		BufferPool pool = BufferPool.getDefault();
+
+		if (buffer != null) {
+			pool.giveChars(buffer);
+			buffer = null;
+		}
+
+		if (bytes != null) {
+			pool.giveBytes(bytes);
+			bytes = null;
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * What codecs, including generated ones, share.
+ */
+@ApiStatus.Internal
+public final class CodecSupport {
+
+	private CodecSupport() {
+		throw new UnsupportedOperationException("Object initialization");
+	}
+
+	/**
+	 * Checks the next token, without consuming it.
+	 *
+	 * @param reader The reader.
+	 * @param token  The token it should be.
+	 * @throws JsonParseException If it is something else.
+	 */
+	public static void expect(@NotNull JsonReader reader, @NotNull JsonToken token) throws IOException {
+		JsonToken actual = reader.peek();
+
+		if (actual != token) {
+			throw new JsonParseException("Expected " + token + " but got " + actual);
+		}
+	}
+
+	/**
+	 * Consumes the next string, or null.
+	 *
+	 * @param reader The reader.
+	 * @return The string, or <code>null</code>.
+	 */
+	public static @Nullable String nextString(@NotNull JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+
+		expect(reader, JsonToken.STRING);
+		return reader.nextString();
+	}
+
+	public static @NotNull Reference reference(@NotNull Type type) {
+		return new Reference(Objects.requireNonNull(type));
+	}
+
+	/**
+	 * Refers to the codec for the type of a field, as declared with its type
+	 * arguments, and any type variables resolved against the owner.
+	 *
+	 * @param owner The class which declares the field, or a subclass.
+	 * @param field The name of the field.
+	 * @return The reference.
+	 */
+	public static @NotNull Reference reference(@NotNull Class<?> owner, @NotNull String field) {
+		for (Class<?> current = owner; current != null; current = current.getSuperclass()) {
+			try {
+				Type type = Types.resolve(current.getDeclaredField(field).getGenericType(), owner);
+
+				if (Types.hasVariable(type)) {
+					throw new IllegalArgumentException(owner.getName() + "." + field + " is a " + type.getTypeName()
+							+ ", which isn't known here");
+				}
+
+				return new Reference(type);
+			} catch (NoSuchFieldException error) {
+				// try the superclass
+			}
+		}
+
+		throw new IllegalArgumentException(owner.getName() + " has no field named " + field);
+	}
+
+	/**
+	 * A codec for another type, found when it is first needed so that types can
+	 * refer to themselves.
+	 */
+	public static final class Reference {
+
+		private final Type type;
+		private JsonCodec<Object> codec;
+
+		Reference(Type type) {
+			this.type = type;
+		}
+
+		@SuppressWarnings("unchecked")
+		public @NotNull JsonCodec<Object> get() {
+			JsonCodec<Object> result = codec;
+
+			if (result == null) {
+				codec = result = (JsonCodec<Object>) JsonBinder.codec(type);
+			}
+
+			return result;
+		}
+
+		/**
+		 * Reads the next value.
+		 *
+		 * @param reader The reader.
+		 * @return The value, or <code>null</code> if it is null.
+		 */
+		public @Nullable Object read(@NotNull JsonReader reader) throws IOException {
+			return Codecs.readNull(reader, type) ? null : get().read(reader);
+		}
+
+		/**
+		 * Writes a value.
+		 *
+		 * @param writer The writer.
+		 * @param value  The value, which may be null.
+		 */
+		public void write(@NotNull JsonWriter writer, @Nullable Object value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+			} else {
+				get().write(writer, value);
+			}
+		}
+
+	}
+
+}
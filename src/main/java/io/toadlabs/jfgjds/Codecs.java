@@ -0,0 +1,766 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import io.toadlabs.jfgjds.data.JsonNumber;
+import io.toadlabs.jfgjds.data.JsonValue;
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * The codecs which {@link JsonBinder} builds for each kind of type.
+ */
+final class Codecs {
+
+	private static final Map<Class<?>, JsonCodec<?>> BUILT_IN = new HashMap<>();
+	// more than any real integer has, and few enough to expand without stalling
+	private static final int MAX_INTEGER_DIGITS = 10_000;
+
+	private Codecs() {
+		throw new UnsupportedOperationException("Object initialization");
+	}
+
+	static final JsonCodec<String> STRING = new JsonCodec<String>() {
+		@Override
+		public String read(JsonReader reader) throws IOException {
+			CodecSupport.expect(reader, JsonToken.STRING);
+			return reader.nextString();
+		}
+
+		@Override
+		public void write(JsonWriter writer, String value) throws IOException {
+			writer.value(value);
+		}
+	};
+
+	// JSON values are kept as they are, and anything else is written by its class
+	static final JsonCodec<Object> DYNAMIC = new JsonCodec<Object>() {
+		@Override
+		public Object read(JsonReader reader) throws IOException {
+			return reader.nextValue();
+		}
+
+		@Override
+		public void write(JsonWriter writer, Object value) throws IOException {
+			if (value.getClass() == Object.class) {
+				writer.beginObject().endObject();
+			} else {
+				writeDynamic(writer, value);
+			}
+		}
+	};
+
+	static {
+		builtIn(new JsonCodec<Integer>() {
+			@Override
+			public Integer read(JsonReader reader) throws IOException {
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				return reader.nextInt();
+			}
+
+			@Override
+			public void write(JsonWriter writer, Integer value) throws IOException {
+				writer.value(value.longValue());
+			}
+		}, int.class, Integer.class);
+
+		builtIn(new JsonCodec<Long>() {
+			@Override
+			public Long read(JsonReader reader) throws IOException {
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				return reader.nextLong();
+			}
+
+			@Override
+			public void write(JsonWriter writer, Long value) throws IOException {
+				writer.value(value.longValue());
+			}
+		}, long.class, Long.class);
+
+		builtIn(new JsonCodec<Short>() {
+			@Override
+			public Short read(JsonReader reader) throws IOException {
+				int value = INT.read(reader);
+
+				if (value != (short) value) {
+					throw new JsonParseException("Expected a short but got " + value);
+				}
+
+				return (short) value;
+			}
+
+			@Override
+			public void write(JsonWriter writer, Short value) throws IOException {
+				writer.value(value.longValue());
+			}
+		}, short.class, Short.class);
+
+		builtIn(new JsonCodec<Byte>() {
+			@Override
+			public Byte read(JsonReader reader) throws IOException {
+				int value = INT.read(reader);
+
+				if (value != (byte) value) {
+					throw new JsonParseException("Expected a byte but got " + value);
+				}
+
+				return (byte) value;
+			}
+
+			@Override
+			public void write(JsonWriter writer, Byte value) throws IOException {
+				writer.value(value.longValue());
+			}
+		}, byte.class, Byte.class);
+
+		builtIn(new JsonCodec<Double>() {
+			@Override
+			public Double read(JsonReader reader) throws IOException {
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				return reader.nextDouble();
+			}
+
+			@Override
+			public void write(JsonWriter writer, Double value) throws IOException {
+				writer.value(value.doubleValue());
+			}
+		}, double.class, Double.class);
+
+		builtIn(new JsonCodec<Float>() {
+			@Override
+			public Float read(JsonReader reader) throws IOException {
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				return (float) reader.nextDouble();
+			}
+
+			@Override
+			public void write(JsonWriter writer, Float value) throws IOException {
+				writer.value(value.doubleValue());
+			}
+		}, float.class, Float.class);
+
+		builtIn(new JsonCodec<Boolean>() {
+			@Override
+			public Boolean read(JsonReader reader) throws IOException {
+				CodecSupport.expect(reader, JsonToken.BOOLEAN);
+				return reader.nextBoolean();
+			}
+
+			@Override
+			public void write(JsonWriter writer, Boolean value) throws IOException {
+				writer.value(value.booleanValue());
+			}
+		}, boolean.class, Boolean.class);
+
+		builtIn(new JsonCodec<Character>() {
+			@Override
+			public Character read(JsonReader reader) throws IOException {
+				String value = STRING.read(reader);
+
+				if (value.length() != 1) {
+					throw new JsonParseException("Expected a single character but got \"" + value + '"');
+				}
+
+				return value.charAt(0);
+			}
+
+			@Override
+			public void write(JsonWriter writer, Character value) throws IOException {
+				writer.value(value.toString());
+			}
+		}, char.class, Character.class);
+
+		builtIn(STRING, String.class);
+
+		builtIn(new JsonCodec<BigDecimal>() {
+			@Override
+			public BigDecimal read(JsonReader reader) throws IOException {
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				return ((JsonNumber) reader.nextValue()).getBigDecimalValue();
+			}
+
+			@Override
+			public void write(JsonWriter writer, BigDecimal value) throws IOException {
+				writer.value(value);
+			}
+		}, BigDecimal.class);
+
+		builtIn(new JsonCodec<BigInteger>() {
+			@Override
+			public BigInteger read(JsonReader reader) throws IOException {
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				BigDecimal value = ((JsonNumber) reader.nextValue()).getBigDecimalValue();
+				// the digits before the point, checked first since 1e999999 is short to
+				// write but slow to expand
+				int digits = value.precision() - value.scale();
+
+				if (digits > MAX_INTEGER_DIGITS) {
+					throw new JsonParseException("Integer has too many digits: " + value);
+				} else if (digits <= 0 && value.signum() != 0) {
+					throw new JsonParseException("Expected an integer but got " + value);
+				}
+
+				try {
+					return value.toBigIntegerExact();
+				} catch (ArithmeticException error) {
+					throw new JsonParseException("Expected an integer but got " + value);
+				}
+			}
+
+			@Override
+			public void write(JsonWriter writer, BigInteger value) throws IOException {
+				writer.value(new BigDecimal(value));
+			}
+		}, BigInteger.class);
+
+		builtIn(new JsonCodec<int[]>() {
+			@Override
+			public int[] read(JsonReader reader) throws IOException {
+				int[] result = new int[8];
+				int size = 0;
+
+				CodecSupport.expect(reader, JsonToken.BEGIN_ARRAY);
+				reader.beginArray();
+
+				while (reader.hasNext()) {
+					if (size == result.length) {
+						result = Arrays.copyOf(result, size << 1);
+					}
+
+					CodecSupport.expect(reader, JsonToken.NUMBER);
+					result[size++] = reader.nextInt();
+				}
+
+				reader.endArray();
+				return Arrays.copyOf(result, size);
+			}
+
+			@Override
+			public void write(JsonWriter writer, int[] value) throws IOException {
+				writer.beginArray();
+
+				for (int element : value) {
+					writer.value(element);
+				}
+
+				writer.endArray();
+			}
+		}, int[].class);
+
+		builtIn(new JsonCodec<long[]>() {
+			@Override
+			public long[] read(JsonReader reader) throws IOException {
+				long[] result = new long[8];
+				int size = 0;
+
+				CodecSupport.expect(reader, JsonToken.BEGIN_ARRAY);
+				reader.beginArray();
+
+				while (reader.hasNext()) {
+					if (size == result.length) {
+						result = Arrays.copyOf(result, size << 1);
+					}
+
+					CodecSupport.expect(reader, JsonToken.NUMBER);
+					result[size++] = reader.nextLong();
+				}
+
+				reader.endArray();
+				return Arrays.copyOf(result, size);
+			}
+
+			@Override
+			public void write(JsonWriter writer, long[] value) throws IOException {
+				writer.beginArray();
+
+				for (long element : value) {
+					writer.value(element);
+				}
+
+				writer.endArray();
+			}
+		}, long[].class);
+
+		builtIn(new JsonCodec<double[]>() {
+			@Override
+			public double[] read(JsonReader reader) throws IOException {
+				double[] result = new double[8];
+				int size = 0;
+
+				CodecSupport.expect(reader, JsonToken.BEGIN_ARRAY);
+				reader.beginArray();
+
+				while (reader.hasNext()) {
+					if (size == result.length) {
+						result = Arrays.copyOf(result, size << 1);
+					}
+
+					CodecSupport.expect(reader, JsonToken.NUMBER);
+					result[size++] = reader.nextDouble();
+				}
+
+				reader.endArray();
+				return Arrays.copyOf(result, size);
+			}
+
+			@Override
+			public void write(JsonWriter writer, double[] value) throws IOException {
+				writer.beginArray();
+
+				for (double element : value) {
+					writer.value(element);
+				}
+
+				writer.endArray();
+			}
+		}, double[].class);
+	}
+
+	static final JsonCodec<Integer> INT = codec(int.class);
+
+	private static void builtIn(JsonCodec<?> codec, Class<?>... types) {
+		for (Class<?> type : types) {
+			BUILT_IN.put(type, codec);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> JsonCodec<T> codec(Class<T> type) {
+		return (JsonCodec<T>) BUILT_IN.get(type);
+	}
+
+	/**
+	 * Builds the codec for a type.
+	 */
+	static JsonCodec<?> create(Type type) {
+		if (type instanceof Class) {
+			return create((Class<?>) type);
+		} else if (type instanceof ParameterizedType) {
+			ParameterizedType parameterized = (ParameterizedType) type;
+			Class<?> raw = (Class<?>) parameterized.getRawType();
+			Type[] arguments = parameterized.getActualTypeArguments();
+
+			if (Collection.class.isAssignableFrom(raw)) {
+				return new CollectionCodec(raw, arguments[0]);
+			} else if (Map.class.isAssignableFrom(raw)) {
+				return new MapCodec(raw, arguments[0], arguments[1]);
+			}
+
+			// a codec given for the raw class is used for all of its parameterizations
+			JsonCodec<?> known = JsonBinder.cached(raw);
+			return known != null ? known : create(raw, parameterized);
+		} else if (type instanceof GenericArrayType) {
+			return new ArrayCodec(erase(type).getComponentType(),
+					((GenericArrayType) type).getGenericComponentType());
+		}
+
+		return JsonBinder.codec(erase(type));
+	}
+
+	private static JsonCodec<?> create(Class<?> type) {
+		return create(type, type);
+	}
+
+	/**
+	 * Builds the codec for a class, as seen from the parameterized type which
+	 * is being bound, if it is one.
+	 */
+	private static JsonCodec<?> create(Class<?> type, Type context) {
+		JsonCodec<?> builtIn = BUILT_IN.get(type);
+
+		if (builtIn != null) {
+			return builtIn;
+		} else if (type == Object.class) {
+			return DYNAMIC;
+		} else if (JsonValue.class.isAssignableFrom(type)) {
+			return new JsonValueCodec(type);
+		} else if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+			return new EnumCodec(type.isEnum() ? type : type.getSuperclass());
+		} else if (type.isArray()) {
+			return new ArrayCodec(type.getComponentType(), type.getComponentType());
+		} else if (Collection.class.isAssignableFrom(type)) {
+			return new CollectionCodec(type, Object.class);
+		} else if (Map.class.isAssignableFrom(type)) {
+			return new MapCodec(type, String.class, Object.class);
+		} else if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			return new AbstractCodec(type);
+		} else if (type.isPrimitive() || type.getName().startsWith("java.")
+				|| type.getName().startsWith("javax.")) {
+			// the fields of the platform's classes aren't ours to bind
+			throw new IllegalArgumentException(
+					"No codec for " + type.getName() + "; one can be given with JsonBinder.register");
+		}
+
+		// generated codecs only know the type variables which the class itself gives
+		if (context == type && type.isAnnotationPresent(GenerateCodec.class)) {
+			JsonCodec<?> generated = generated(type);
+
+			if (generated != null) {
+				return generated;
+			}
+		}
+
+		return ObjectCodec.create(type, context);
+	}
+
+	/**
+	 * Loads the codec which the annotation processor generated for a type.
+	 *
+	 * @return The codec, or <code>null</code> if there isn't one.
+	 */
+	private static JsonCodec<?> generated(Class<?> type) {
+		String name = type.getName();
+		int start = name.lastIndexOf('.') + 1;
+		String codec = name.substring(0, start) + name.substring(start).replace('$', '_') + "_JsonCodec";
+
+		try {
+			return (JsonCodec<?>) Class.forName(codec, true, type.getClassLoader()).getConstructor().newInstance();
+		} catch (ClassNotFoundException error) {
+			// the processor didn't run
+			return null;
+		} catch (ReflectiveOperationException error) {
+			throw new IllegalArgumentException("Cannot create " + codec, error);
+		}
+	}
+
+	/**
+	 * Gets the class of a type, as far as it is known.
+	 */
+	static Class<?> erase(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		} else if (type instanceof GenericArrayType) {
+			return Array.newInstance(erase(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		} else if (type instanceof WildcardType) {
+			return erase(((WildcardType) type).getUpperBounds()[0]);
+		} else if (type instanceof TypeVariable) {
+			return erase(((TypeVariable<?>) type).getBounds()[0]);
+		}
+
+		return Object.class;
+	}
+
+	/**
+	 * Consumes the next value if it is null.
+	 *
+	 * @return <code>true</code> if it was null.
+	 */
+	static boolean readNull(JsonReader reader, Type type) throws IOException {
+		if (reader.peek() != JsonToken.NULL) {
+			return false;
+		}
+
+		if (type instanceof Class && ((Class<?>) type).isPrimitive()) {
+			throw new JsonParseException("Expected " + type + " but got null");
+		}
+
+		reader.nextNull();
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	static void writeDynamic(JsonWriter writer, Object value) throws IOException {
+		if (value == null) {
+			writer.nullValue();
+		} else {
+			((JsonCodec<Object>) JsonBinder.codec(value.getClass())).write(writer, value);
+		}
+	}
+
+	static RuntimeException propagate(Throwable error) {
+		if (error instanceof RuntimeException) {
+			return (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		}
+
+		return new IllegalStateException(error);
+	}
+
+	/**
+	 * Makes a factory from a constructor without arguments. Without one, the
+	 * factory throws, so that the type can still be written.
+	 */
+	static <T> Supplier<T> constructor(Class<?> type) {
+		MethodHandle constructor;
+
+		try {
+			constructor = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Object.class));
+		} catch (ReflectiveOperationException error) {
+			return () -> {
+				throw new IllegalArgumentException(type.getName() + " has no public constructor without arguments");
+			};
+		}
+
+		return () -> {
+			try {
+				@SuppressWarnings("unchecked")
+				T result = (T) (Object) constructor.invokeExact();
+				return result;
+			} catch (Throwable error) {
+				throw propagate(error);
+			}
+		};
+	}
+
+	private static final class JsonValueCodec implements JsonCodec<JsonValue> {
+
+		private final Class<?> type;
+
+		JsonValueCodec(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public JsonValue read(JsonReader reader) throws IOException {
+			JsonValue result = reader.nextValue();
+
+			if (!type.isInstance(result)) {
+				throw new JsonParseException("Expected " + type.getSimpleName() + " but got " + result);
+			}
+
+			return result;
+		}
+
+		@Override
+		public void write(JsonWriter writer, JsonValue value) throws IOException {
+			writer.value(value);
+		}
+
+	}
+
+	private static final class EnumCodec implements JsonCodec<Enum<?>> {
+
+		private final Class<?> type;
+		private final Map<String, Enum<?>> constants = new HashMap<>();
+
+		EnumCodec(Class<?> type) {
+			this.type = type;
+
+			for (Object constant : type.getEnumConstants()) {
+				constants.put(((Enum<?>) constant).name(), (Enum<?>) constant);
+			}
+		}
+
+		@Override
+		public Enum<?> read(JsonReader reader) throws IOException {
+			String name = STRING.read(reader);
+			Enum<?> result = constants.get(name);
+
+			if (result == null) {
+				throw new JsonParseException("No " + type.getSimpleName() + " constant named \"" + name + '"');
+			}
+
+			return result;
+		}
+
+		@Override
+		public void write(JsonWriter writer, Enum<?> value) throws IOException {
+			writer.value(value.name());
+		}
+
+	}
+
+	private static final class ArrayCodec implements JsonCodec<Object> {
+
+		private final Class<?> component;
+		private final CodecSupport.Reference element;
+
+		ArrayCodec(Class<?> component, Type element) {
+			this.component = component;
+			this.element = CodecSupport.reference(element);
+		}
+
+		@Override
+		public Object read(JsonReader reader) throws IOException {
+			List<Object> elements = new ArrayList<>();
+
+			CodecSupport.expect(reader, JsonToken.BEGIN_ARRAY);
+			reader.beginArray();
+
+			while (reader.hasNext()) {
+				elements.add(element.read(reader));
+			}
+
+			reader.endArray();
+
+			Object result = Array.newInstance(component, elements.size());
+
+			for (int index = 0; index < elements.size(); index++) {
+				Array.set(result, index, elements.get(index));
+			}
+
+			return result;
+		}
+
+		@Override
+		public void write(JsonWriter writer, Object value) throws IOException {
+			int length = Array.getLength(value);
+			writer.beginArray();
+
+			for (int index = 0; index < length; index++) {
+				element.write(writer, Array.get(value, index));
+			}
+
+			writer.endArray();
+		}
+
+	}
+
+	private static final class CollectionCodec implements JsonCodec<Collection<Object>> {
+
+		private final Supplier<Collection<Object>> factory;
+		private final CodecSupport.Reference element;
+
+		CollectionCodec(Class<?> type, Type element) {
+			this.element = CodecSupport.reference(element);
+
+			if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+				factory = constructor(type);
+			} else if (type.isAssignableFrom(ArrayList.class)) {
+				factory = ArrayList::new;
+			} else if (type.isAssignableFrom(LinkedHashSet.class)) {
+				factory = LinkedHashSet::new;
+			} else if (type == SortedSet.class || type == NavigableSet.class) {
+				factory = TreeSet::new;
+			} else if (Queue.class.isAssignableFrom(type) && type.isAssignableFrom(ArrayDeque.class)) {
+				factory = ArrayDeque::new;
+			} else {
+				throw new IllegalArgumentException("Don't know how to create a " + type.getName());
+			}
+		}
+
+		@Override
+		public Collection<Object> read(JsonReader reader) throws IOException {
+			Collection<Object> result = factory.get();
+
+			CodecSupport.expect(reader, JsonToken.BEGIN_ARRAY);
+			reader.beginArray();
+
+			while (reader.hasNext()) {
+				result.add(element.read(reader));
+			}
+
+			reader.endArray();
+			return result;
+		}
+
+		@Override
+		public void write(JsonWriter writer, Collection<Object> value) throws IOException {
+			writer.beginArray();
+
+			for (Object item : value) {
+				element.write(writer, item);
+			}
+
+			writer.endArray();
+		}
+
+	}
+
+	private static final class MapCodec implements JsonCodec<Map<Object, Object>> {
+
+		private final Supplier<Map<Object, Object>> factory;
+		private final CodecSupport.Reference value;
+
+		MapCodec(Class<?> type, Type key, Type value) {
+			if (erase(key) != String.class && erase(key) != Object.class) {
+				throw new IllegalArgumentException("Map keys must be strings, not " + key.getTypeName());
+			}
+
+			this.value = CodecSupport.reference(value);
+
+			if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+				factory = constructor(type);
+			} else if (type.isAssignableFrom(LinkedHashMap.class)) {
+				factory = LinkedHashMap::new;
+			} else if (type == SortedMap.class || type == NavigableMap.class) {
+				factory = TreeMap::new;
+			} else {
+				throw new IllegalArgumentException("Don't know how to create a " + type.getName());
+			}
+		}
+
+		@Override
+		public Map<Object, Object> read(JsonReader reader) throws IOException {
+			Map<Object, Object> result = factory.get();
+
+			CodecSupport.expect(reader, JsonToken.BEGIN_OBJECT);
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				String key = reader.nextName();
+				result.put(key, value.read(reader));
+			}
+
+			reader.endObject();
+			return result;
+		}
+
+		@Override
+		public void write(JsonWriter writer, Map<Object, Object> map) throws IOException {
+			writer.beginObject();
+
+			for (Map.Entry<Object, Object> entry : map.entrySet()) {
+				writer.name(String.valueOf(entry.getKey()));
+				value.write(writer, entry.getValue());
+			}
+
+			writer.endObject();
+		}
+
+	}
+
+	// interfaces and abstract classes can be written, but not read
+	private static final class AbstractCodec implements JsonCodec<Object> {
+
+		private final Class<?> type;
+
+		AbstractCodec(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public Object read(JsonReader reader) throws IOException {
+			throw new IllegalArgumentException("Cannot create an instance of " + type.getName());
+		}
+
+		@Override
+		public void write(JsonWriter writer, Object value) throws IOException {
+			writeDynamic(writer, value);
+		}
+
+	}
+
+}
@@ -0,0 +1,447 @@
+package io.toadlabs.jfgjds;
+
+import java.math.BigInteger;
+
+/**
+ * Conversions between doubles and decimal text, which don't allocate.
+ * <p>
+ * Parsing takes the significand and exponent the parser has already gathered
+ * from the digits. Most numbers are exact in double arithmetic and take
+ * Clinger's fast path. The rest go through the Eisel-Lemire algorithm, which
+ * multiplies by a 128-bit approximation of the power of ten, and bails out on
+ * the rare ambiguous cases so that the caller can fall back to
+ * {@link Double#parseDouble(String)}.
+ * <p>
+ * Formatting finds the shortest decimal which reads back as the same double
+ * with Giulietti's Schubfach algorithm, and lays it out as JavaScript would.
+ * Integers within the range of exact doubles are written as longs.
+ */
+final class DoubleConversion {
+
+	/** The most characters {@link #format(double, byte[], int)} can write. */
+	static final int MAX_LENGTH = 26;
+
+	/** The most characters {@link #formatLong(long, byte[], int)} can write. */
+	static final int MAX_LONG_LENGTH = 20;
+
+	// largest integer which all smaller integers are exact doubles below
+	private static final long MAX_EXACT = 1L << 53;
+
+	private static final double[] SMALL_POWERS = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// Eisel-Lemire: 10^q truncated to 128 bits, as high and low halves
+	private static final int MIN_POWER = -348;
+	private static final int MAX_POWER = 347;
+	private static final long[] POWERS = new long[(MAX_POWER - MIN_POWER + 1) << 1];
+
+	// Schubfach: g(k) = floor(10^-k 2^(125 - floor(log2(10^-k)))) + 1, split into 63-bit halves
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+	private static final long[] G = new long[(K_MAX - K_MIN + 1) << 1];
+
+	private static final int Q_MIN = -1074;
+	private static final long C_MIN = 1L << 52;
+	private static final long C_TINY = 3;
+	private static final long MASK_63 = (1L << 63) - 1;
+
+	private static final byte[] DIGIT_PAIRS = new byte[200];
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		BigInteger ten = BigInteger.TEN;
+
+		for (int q = MIN_POWER; q <= MAX_POWER; q++) {
+			BigInteger mantissa;
+
+			if (q >= 0) {
+				BigInteger power = ten.pow(q);
+				int shift = power.bitLength() - 128;
+				mantissa = shift > 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+			} else {
+				BigInteger power = ten.pow(-q);
+				mantissa = BigInteger.ONE.shiftLeft(power.bitLength() + 127).divide(power);
+			}
+
+			int index = (q - MIN_POWER) << 1;
+			POWERS[index] = mantissa.shiftRight(64).longValue();
+			POWERS[index + 1] = mantissa.longValue();
+		}
+
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			BigInteger numerator = k <= 0 ? ten.pow(-k) : BigInteger.ONE;
+			BigInteger denominator = k <= 0 ? BigInteger.ONE : ten.pow(k);
+			int r = flog2pow10(-k) - 125;
+
+			if (r >= 0) {
+				denominator = denominator.shiftLeft(r);
+			} else {
+				numerator = numerator.shiftLeft(-r);
+			}
+
+			BigInteger g = numerator.divide(denominator).add(BigInteger.ONE);
+			int index = (k - K_MIN) << 1;
+			G[index] = g.shiftRight(63).longValue();
+			G[index + 1] = g.longValue() & MASK_63;
+		}
+
+		POWERS_OF_TEN[0] = 1;
+
+		for (int exponent = 1; exponent < POWERS_OF_TEN.length; exponent++) {
+			POWERS_OF_TEN[exponent] = POWERS_OF_TEN[exponent - 1] * 10;
+		}
+
+		for (int value = 0; value < 100; value++) {
+			DIGIT_PAIRS[value << 1] = (byte) ('0' + value / 10);
+			DIGIT_PAIRS[value << 1 | 1] = (byte) ('0' + value % 10);
+		}
+	}
+
+	private DoubleConversion() {
+	}
+
+	/**
+	 * Converts a decimal to the nearest double.
+	 *
+	 * @param negative    Whether the number is negative.
+	 * @param significand The first 19 significant digits, as an unsigned long.
+	 * @param exponent    The power of ten to multiply the significand by.
+	 * @param truncated   Whether any non-zero digits were left out of the
+	 *                    significand.
+	 * @return The double, or NaN if it could not be determined quickly.
+	 */
+	static double parse(boolean negative, long significand, int exponent, boolean truncated) {
+		if (!truncated) {
+			return parse(negative, significand, exponent);
+		}
+
+		// the true value is between the two, so if they agree then so does it
+		double lower = parse(negative, significand, exponent);
+
+		if (lower == lower && lower == parse(negative, significand + 1, exponent)) {
+			return lower;
+		}
+
+		return Double.NaN;
+	}
+
+	private static double parse(boolean negative, long significand, int exponent) {
+		if (significand == 0) {
+			return negative ? -0.0 : 0.0;
+		}
+
+		if (significand >= 0 && significand <= MAX_EXACT && exponent >= -22 && exponent <= 22) {
+			// both are exact, so the operation rounds correctly
+			double value = significand;
+			value = exponent < 0 ? value / SMALL_POWERS[-exponent] : value * SMALL_POWERS[exponent];
+			return negative ? -value : value;
+		}
+
+		if (exponent < MIN_POWER || exponent > MAX_POWER) {
+			return Double.NaN;
+		}
+
+		return eiselLemire(negative, significand, exponent);
+	}
+
+	private static double eiselLemire(boolean negative, long significand, int exponent) {
+		int index = (exponent - MIN_POWER) << 1;
+		int zeros = Long.numberOfLeadingZeros(significand);
+		long mantissa = significand << zeros;
+		long binaryExponent = ((217706L * exponent) >> 16) + 64 + 1023 - zeros;
+
+		long high = unsignedMultiplyHigh(mantissa, POWERS[index]);
+		long low = mantissa * POWERS[index];
+
+		// the truncation of the power may matter, so take the next 64 bits of it into account
+		if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+			long nextHigh = unsignedMultiplyHigh(mantissa, POWERS[index + 1]);
+			long nextLow = mantissa * POWERS[index + 1];
+			long mergedHigh = high;
+			long mergedLow = low + nextHigh;
+
+			if (Long.compareUnsigned(mergedLow, low) < 0) {
+				mergedHigh++;
+			}
+
+			if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0
+					&& Long.compareUnsigned(nextLow + mantissa, mantissa) < 0) {
+				return Double.NaN;
+			}
+
+			high = mergedHigh;
+			low = mergedLow;
+		}
+
+		int top = (int) (high >>> 63);
+		long result = high >>> (top + 9);
+		binaryExponent -= 1 ^ top;
+
+		// exactly halfway, which needs the remaining digits to break the tie
+		if (low == 0 && (high & 0x1FF) == 0 && (result & 3) == 1) {
+			return Double.NaN;
+		}
+
+		result += result & 1;
+		result >>>= 1;
+
+		if (result >>> 53 > 0) {
+			result >>>= 1;
+			binaryExponent++;
+		}
+
+		// subnormal or infinite
+		if (binaryExponent <= 0 || binaryExponent >= 0x7FF) {
+			return Double.NaN;
+		}
+
+		long bits = binaryExponent << 52 | result & 0x000FFFFFFFFFFFFFL;
+		return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+	}
+
+	/**
+	 * Writes the shortest decimal which reads back as the same double.
+	 *
+	 * @param value The double, which must be finite.
+	 * @param out   The buffer, with at least {@link #MAX_LENGTH} bytes free.
+	 * @param pos   The offset to write at.
+	 * @return The offset after the number.
+	 */
+	static int format(double value, byte[] out, int pos) {
+		long bits = Double.doubleToRawLongBits(value);
+
+		if (bits < 0) {
+			out[pos++] = '-';
+			value = -value;
+		}
+
+		if (value < MAX_EXACT) {
+			long integer = (long) value;
+
+			if (integer == value) {
+				return formatLong(integer, out, pos);
+			}
+		}
+
+		long fraction = bits & C_MIN - 1;
+		int biasedExponent = (int) (bits >>> 52) & 0x7FF;
+
+		if (biasedExponent != 0) {
+			return toDecimal(Q_MIN - 1 + biasedExponent, C_MIN | fraction, 0, out, pos);
+		}
+
+		// subnormal
+		return fraction < C_TINY ? toDecimal(Q_MIN, 10 * fraction, -1, out, pos)
+				: toDecimal(Q_MIN, fraction, 0, out, pos);
+	}
+
+	/**
+	 * Finds the decimal closest to c 2^q among the shortest which round to it,
+	 * as in figure 7 of Giulietti's paper.
+	 */
+	private static int toDecimal(int q, long c, int dk, byte[] out, int pos) {
+		int odd = (int) c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+
+		if (c != C_MIN | q == Q_MIN) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			// the gap below a power of two is half as wide
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+
+		int h = q + flog2pow10(-k) + 2;
+		int index = (k - K_MIN) << 1;
+		long g1 = G[index];
+		long g0 = G[index + 1];
+
+		long vb = roundToOdd(g1, g0, cb << h);
+		long vbl = roundToOdd(g1, g0, cbl << h);
+		long vbr = roundToOdd(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+
+		if (s >= 100) {
+			// s / 10, from the table in section 10 of the paper
+			long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + odd <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + odd <= vbr;
+
+			if (upin != wpin) {
+				return writeDecimal(upin ? sp10 : tp10, k, out, pos);
+			}
+		}
+
+		long t = s + 1;
+		boolean uin = vbl + odd <= s << 2;
+		boolean win = (t << 2) + odd <= vbr;
+
+		if (uin != win) {
+			return writeDecimal(uin ? s : t, k + dk, out, pos);
+		}
+
+		// both are in range, so take the closest, or the even one on a tie
+		long cmp = vb - (s + t << 1);
+		return writeDecimal(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, out, pos);
+	}
+
+	private static long roundToOdd(long g1, long g0, long cp) {
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	/**
+	 * Lays out f 10^e as JavaScript would: plainly between 1e-7 and 1e21, and
+	 * in scientific notation otherwise.
+	 */
+	private static int writeDecimal(long f, int e, byte[] out, int pos) {
+		while (f % 10 == 0) {
+			f /= 10;
+			e++;
+		}
+
+		int length = digitCount(f);
+		int point = length + e;
+
+		if (point > 0 && point <= 21) {
+			if (e >= 0) {
+				pos = formatDigits(f, length, out, pos);
+
+				for (int index = 0; index < e; index++) {
+					out[pos++] = '0';
+				}
+
+				return pos;
+			}
+
+			// the integer digits are written, then moved along for the point
+			int end = formatDigits(f, length, out, pos);
+			System.arraycopy(out, pos + point, out, pos + point + 1, length - point);
+			out[pos + point] = '.';
+			return end + 1;
+		}
+
+		if (point <= 0 && point > -6) {
+			out[pos++] = '0';
+			out[pos++] = '.';
+
+			for (int index = point; index < 0; index++) {
+				out[pos++] = '0';
+			}
+
+			return formatDigits(f, length, out, pos);
+		}
+
+		int end = formatDigits(f, length, out, pos);
+
+		if (length > 1) {
+			System.arraycopy(out, pos + 1, out, pos + 2, length - 1);
+			out[pos + 1] = '.';
+			end++;
+		}
+
+		int exponent = point - 1;
+		out[end++] = 'e';
+		out[end++] = (byte) (exponent < 0 ? '-' : '+');
+		return formatDigits(Math.abs(exponent), digitCount(Math.abs(exponent)), out, end);
+	}
+
+	/**
+	 * Writes a long in decimal.
+	 *
+	 * @param value The value.
+	 * @param out   The buffer, with at least {@link #MAX_LONG_LENGTH} bytes
+	 *              free.
+	 * @param pos   The offset to write at.
+	 * @return The offset after the number.
+	 */
+	static int formatLong(long value, byte[] out, int pos) {
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				byte[] digits = { '-', '9', '2', '2', '3', '3', '7', '2', '0', '3', '6', '8', '5', '4', '7', '7', '5',
+						'8', '0', '8' };
+				System.arraycopy(digits, 0, out, pos, digits.length);
+				return pos + digits.length;
+			}
+
+			out[pos++] = '-';
+			value = -value;
+		}
+
+		return formatDigits(value, digitCount(value), out, pos);
+	}
+
+	private static int formatDigits(long value, int length, byte[] out, int pos) {
+		int end = pos + length;
+		int at = end;
+
+		while (value >= 100) {
+			int pair = (int) (value % 100) << 1;
+			value /= 100;
+			out[--at] = DIGIT_PAIRS[pair | 1];
+			out[--at] = DIGIT_PAIRS[pair];
+		}
+
+		int pair = (int) value << 1;
+		out[--at] = DIGIT_PAIRS[pair | 1];
+
+		if (value >= 10) {
+			out[--at] = DIGIT_PAIRS[pair];
+		}
+
+		return end;
+	}
+
+	private static int digitCount(long value) {
+		int count = 1;
+
+		while (count < 19 && value >= POWERS_OF_TEN[count]) {
+			count++;
+		}
+
+		return count;
+	}
+
+	// floor(q log10(2))
+	private static int flog10pow2(int q) {
+		return (int) (q * 661_971_961_083L >> 41);
+	}
+
+	// floor(log10(3/4 2^q))
+	private static int flog10threeQuartersPow2(int q) {
+		return (int) (q * 661_971_961_083L - 274_743_187_321L >> 41);
+	}
+
+	// floor(e log2(10))
+	private static int flog2pow10(int e) {
+		return (int) (e * 913_124_641_741L >> 38);
+	}
+
+	// Math.multiplyHigh is not in Java 8
+	private static long multiplyHigh(long x, long y) {
+		long x1 = x >> 32;
+		long x2 = x & 0xFFFFFFFFL;
+		long y1 = y >> 32;
+		long y2 = y & 0xFFFFFFFFL;
+		long z2 = x2 * y2;
+		long t = x1 * y2 + (z2 >>> 32);
+		long z1 = (t & 0xFFFFFFFFL) + x2 * y1;
+		long z0 = t >> 32;
+		return x1 * y1 + z0 + (z1 >> 32);
+	}
+
+	private static long unsignedMultiplyHigh(long x, long y) {
+		return multiplyHigh(x, y) + (x >> 63 & y) + (y >> 63 & x);
+	}
+
+}
@@ -0,0 +1,23 @@
+package io.toadlabs.jfgjds;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks for a codec to be generated for a class or record at compile time, by
+ * the annotation processor in <code>jfgjds-processor</code>. The codec is
+ * named after the type, as in <code>Order_JsonCodec</code>, and is used by
+ * {@link JsonBinder} in place of one built by reflection. Without the
+ * processor, the annotation does nothing.
+ * <p>
+ * Generated codecs reach fields directly, so those which are private need a
+ * getter and setter which aren't.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {
+}
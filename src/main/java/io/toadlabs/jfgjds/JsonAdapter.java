@@ -0,0 +1,42 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+
+import org.jetbrains.annotations.NotNull;
+
+import io.toadlabs.jfgjds.data.JsonValue;
+
+/**
+ * Converts objects of one Java type for {@link JsonValue#coerce(Object)} and
+ * {@link JsonWriter#coercedValue(Object)}. Unlike a {@link JsonCodec}, an
+ * adapter only goes one way, and is chosen by the class of the object rather
+ * than a declared type. Adapters are never given null.
+ *
+ * @param <T> The type.
+ * @see JsonAdapters#register(Class, JsonAdapter)
+ */
+@FunctionalInterface
+public interface JsonAdapter<T> {
+
+	/**
+	 * Converts a value to a tree.
+	 *
+	 * @param value The value.
+	 * @return The JSON value.
+	 */
+	@NotNull
+	JsonValue toJson(@NotNull T value);
+
+	/**
+	 * Writes a value straight to a writer. By default, this writes what
+	 * {@link #toJson(Object)} gives; adapters which can do so without building
+	 * a tree should override it.
+	 *
+	 * @param writer The writer, ready for a value.
+	 * @param value  The value.
+	 */
+	default void write(@NotNull JsonWriter writer, @NotNull T value) throws IOException {
+		writer.value(toJson(value));
+	}
+
+}
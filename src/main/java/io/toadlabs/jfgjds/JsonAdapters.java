@@ -0,0 +1,338 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jetbrains.annotations.NotNull;
+
+import io.toadlabs.jfgjds.data.JsonArray;
+import io.toadlabs.jfgjds.data.JsonBoolean;
+import io.toadlabs.jfgjds.data.JsonNumber;
+import io.toadlabs.jfgjds.data.JsonObject;
+import io.toadlabs.jfgjds.data.JsonString;
+import io.toadlabs.jfgjds.data.JsonValue;
+
+/**
+ * Chooses the {@link JsonAdapter} for each class of object given to
+ * {@link JsonValue#coerce(Object)} and {@link JsonWriter#coercedValue(Object)}.
+ * The adapter is found once for each class, and cached from then on, so
+ * coercing doesn't test the object against every type it knows.
+ * <p>
+ * Built in are strings, numbers, booleans, maps (with keys converted to
+ * strings), collections, arrays, enums by name, <code>UUID</code>s and
+ * <code>Instant</code>s. Arrays of primitives are converted without boxing
+ * each element, and <code>char[]</code> is treated as a string. Anything else
+ * is converted with <code>toString()</code>, and
+ * {@link io.toadlabs.jfgjds.data.JsonValue}s are always kept as they are.
+ */
+public final class JsonAdapters {
+
+	private static final JsonAdapter<Object> AS_IS = adapter(value -> (JsonValue) value,
+			(writer, value) -> writer.value((JsonValue) value));
+	private static final JsonAdapter<Object> TO_STRING = adapter(value -> new JsonString(value.toString()),
+			(writer, value) -> writer.value(value.toString()));
+	private static final JsonAdapter<Number> LONG = adapter(value -> new JsonNumber(value.longValue()),
+			(writer, value) -> writer.value(value.longValue()));
+
+	private static final List<Entry> BUILT_IN = new ArrayList<>();
+	// latest first, so they replace those which came before
+	private static final List<Entry> REGISTERED = new CopyOnWriteArrayList<>();
+	private static volatile ClassValue<JsonAdapter<Object>> cache = new Cache();
+
+	static {
+		builtIn(String.class, adapter(JsonString::new, JsonWriter::value));
+		builtIn(Long.class, LONG);
+		builtIn(Integer.class, LONG);
+		builtIn(Short.class, LONG);
+		builtIn(Byte.class, LONG);
+		builtIn(BigDecimal.class, adapter(JsonNumber::new, JsonWriter::value));
+		builtIn(BigInteger.class, adapter(value -> new JsonNumber(new BigDecimal(value)),
+				(writer, value) -> writer.value(new BigDecimal(value))));
+		builtIn(Number.class, adapter(value -> new JsonNumber(value.doubleValue()),
+				(writer, value) -> writer.value(value.doubleValue())));
+		builtIn(Boolean.class, adapter(value -> value ? JsonBoolean.TRUE : JsonBoolean.FALSE, JsonWriter::value));
+		builtIn(Map.class, adapter(JsonAdapters::toObject, JsonAdapters::writeObject));
+		builtIn(Collection.class, adapter(JsonAdapters::toArray, JsonAdapters::writeArray));
+		builtIn(Object[].class, adapter(JsonArray::of, JsonAdapters::writeArray));
+		builtIn(Enum.class, adapter(value -> new JsonString(value.name()),
+				(writer, value) -> writer.value(value.name())));
+		builtIn(UUID.class, TO_STRING);
+		builtIn(Instant.class, TO_STRING);
+
+		builtIn(int[].class, adapter(array -> {
+			JsonArray result = new JsonArray();
+
+			for (int element : array) {
+				result.add((long) element);
+			}
+
+			return result;
+		}, (writer, array) -> {
+			writer.beginArray();
+
+			for (int element : array) {
+				writer.value((long) element);
+			}
+
+			writer.endArray();
+		}));
+		builtIn(long[].class, adapter(array -> {
+			JsonArray result = new JsonArray();
+
+			for (long element : array) {
+				result.add(element);
+			}
+
+			return result;
+		}, (writer, array) -> {
+			writer.beginArray();
+
+			for (long element : array) {
+				writer.value(element);
+			}
+
+			writer.endArray();
+		}));
+		builtIn(short[].class, adapter(array -> {
+			JsonArray result = new JsonArray();
+
+			for (short element : array) {
+				result.add((long) element);
+			}
+
+			return result;
+		}, (writer, array) -> {
+			writer.beginArray();
+
+			for (short element : array) {
+				writer.value((long) element);
+			}
+
+			writer.endArray();
+		}));
+		builtIn(byte[].class, adapter(array -> {
+			JsonArray result = new JsonArray();
+
+			for (byte element : array) {
+				result.add((long) element);
+			}
+
+			return result;
+		}, (writer, array) -> {
+			writer.beginArray();
+
+			for (byte element : array) {
+				writer.value((long) element);
+			}
+
+			writer.endArray();
+		}));
+		builtIn(double[].class, adapter(array -> {
+			JsonArray result = new JsonArray();
+
+			for (double element : array) {
+				result.add(element);
+			}
+
+			return result;
+		}, (writer, array) -> {
+			writer.beginArray();
+
+			for (double element : array) {
+				writer.value(element);
+			}
+
+			writer.endArray();
+		}));
+		builtIn(float[].class, adapter(array -> {
+			JsonArray result = new JsonArray();
+
+			for (float element : array) {
+				result.add((double) element);
+			}
+
+			return result;
+		}, (writer, array) -> {
+			writer.beginArray();
+
+			for (float element : array) {
+				writer.value((double) element);
+			}
+
+			writer.endArray();
+		}));
+		builtIn(boolean[].class, adapter(array -> {
+			JsonArray result = new JsonArray();
+
+			for (boolean element : array) {
+				result.add(element);
+			}
+
+			return result;
+		}, (writer, array) -> {
+			writer.beginArray();
+
+			for (boolean element : array) {
+				writer.value(element);
+			}
+
+			writer.endArray();
+		}));
+		builtIn(char[].class, adapter(array -> new JsonString(new String(array)),
+				(writer, array) -> writer.value(new String(array))));
+	}
+
+	private JsonAdapters() {
+		throw new UnsupportedOperationException("Object initialization");
+	}
+
+	/**
+	 * Uses an adapter for a type and its subtypes, in place of the one which
+	 * would otherwise be chosen. Adapters which are registered later take
+	 * precedence over those which came before.
+	 *
+	 * @param <T>     The type.
+	 * @param type    The type.
+	 * @param adapter The adapter.
+	 */
+	public static synchronized <T> void register(@NotNull Class<T> type, @NotNull JsonAdapter<? super T> adapter) {
+		REGISTERED.add(0, new Entry(Objects.requireNonNull(type), Objects.requireNonNull(adapter)));
+		// everything cached so far may have been replaced
+		cache = new Cache();
+	}
+
+	/**
+	 * Gets the adapter for objects of a class.
+	 *
+	 * @param type The class of the object.
+	 * @return The adapter.
+	 */
+	public static @NotNull JsonAdapter<Object> get(@NotNull Class<?> type) {
+		return cache.get(type);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JsonAdapter<Object> resolve(Class<?> type) {
+		if (JsonValue.class.isAssignableFrom(type)) {
+			return AS_IS;
+		}
+
+		for (Entry entry : REGISTERED) {
+			if (entry.type.isAssignableFrom(type)) {
+				return (JsonAdapter<Object>) entry.adapter;
+			}
+		}
+
+		for (Entry entry : BUILT_IN) {
+			if (entry.type.isAssignableFrom(type)) {
+				return (JsonAdapter<Object>) entry.adapter;
+			}
+		}
+
+		return TO_STRING;
+	}
+
+	private static <T> void builtIn(Class<T> type, JsonAdapter<? super T> adapter) {
+		BUILT_IN.add(new Entry(type, adapter));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JsonObject toObject(Map<?, ?> map) {
+		return JsonObject.ofCoerced((Map<Object, Object>) map);
+	}
+
+	private static void writeObject(JsonWriter writer, Map<?, ?> map) throws IOException {
+		writer.beginObject();
+
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			writer.name(Objects.toString(entry.getKey()));
+			writer.coercedValue(entry.getValue());
+		}
+
+		writer.endObject();
+	}
+
+	private static JsonArray toArray(Collection<?> collection) {
+		JsonArray result = new JsonArray();
+
+		for (Object element : collection) {
+			result.add(JsonValue.coerce(element));
+		}
+
+		return result;
+	}
+
+	private static void writeArray(JsonWriter writer, Collection<?> collection) throws IOException {
+		writer.beginArray();
+
+		for (Object element : collection) {
+			writer.coercedValue(element);
+		}
+
+		writer.endArray();
+	}
+
+	private static void writeArray(JsonWriter writer, Object[] array) throws IOException {
+		writer.beginArray();
+
+		for (Object element : array) {
+			writer.coercedValue(element);
+		}
+
+		writer.endArray();
+	}
+
+	private static <T> JsonAdapter<T> adapter(JsonAdapter<T> converter, Streamer<T> streamer) {
+		return new JsonAdapter<T>() {
+
+			@Override
+			public JsonValue toJson(T value) {
+				return converter.toJson(value);
+			}
+
+			@Override
+			public void write(JsonWriter writer, T value) throws IOException {
+				streamer.write(writer, value);
+			}
+
+		};
+	}
+
+	@FunctionalInterface
+	private interface Streamer<T> {
+
+		void write(JsonWriter writer, T value) throws IOException;
+
+	}
+
+	private static final class Entry {
+
+		final Class<?> type;
+		final JsonAdapter<?> adapter;
+
+		Entry(Class<?> type, JsonAdapter<?> adapter) {
+			this.type = type;
+			this.adapter = adapter;
+		}
+
+	}
+
+	private static final class Cache extends ClassValue<JsonAdapter<Object>> {
+
+		@Override
+		protected JsonAdapter<Object> computeValue(Class<?> type) {
+			return resolve(type);
+		}
+
+	}
+
+}
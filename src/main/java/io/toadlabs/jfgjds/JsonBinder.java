@@ -0,0 +1,248 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * Binds JSON straight to Java objects and back, without building a tree in
+ * between.
+ * <p>
+ * Each type gets a {@link JsonCodec}, built the first time it is needed and
+ * cached from then on. Plain classes are bound by their fields, other than
+ * static and transient ones, and need a constructor without arguments; records
+ * are bound by their components, through the canonical constructor. The
+ * fields are reached through method handles made when the codec is built, so
+ * binding doesn't use reflection once it has warmed up.
+ * <p>
+ * Built in are the primitives and their boxes, strings, <code>BigDecimal</code>
+ * and <code>BigInteger</code>, enums by name, arrays, collections, maps with
+ * string keys, and {@link io.toadlabs.jfgjds.data.JsonValue}s. A field which
+ * is declared as <code>Object</code> is read as a <code>JsonValue</code>, and
+ * written according to what it holds. Keys which aren't bound are skipped, and
+ * bound keys which are missing are left as they are.
+ *
+ * <pre>
+ * Order order = JsonBinder.read(in, Order.class);
+ * String json = JsonBinder.toString(order);
+ * </pre>
+ */
+public final class JsonBinder {
+
+	private static final ConcurrentMap<Type, JsonCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+	private JsonBinder() {
+		throw new UnsupportedOperationException("Object initialization");
+	}
+
+	/**
+	 * Uses a codec for a type, instead of the one which would be built for it.
+	 * This should be done before the type is first bound, since codecs which
+	 * have already used the old one may keep it.
+	 *
+	 * @param <T>   The type.
+	 * @param type  The type.
+	 * @param codec The codec.
+	 */
+	public static <T> void register(@NotNull Class<T> type, @NotNull JsonCodec<T> codec) {
+		register((Type) type, codec);
+	}
+
+	/**
+	 * Uses a codec for a possibly generic type, such as one from
+	 * {@link java.lang.reflect.Field#getGenericType()}.
+	 *
+	 * @param type  The type.
+	 * @param codec The codec.
+	 * @see #register(Class, JsonCodec)
+	 */
+	public static void register(@NotNull Type type, @NotNull JsonCodec<?> codec) {
+		CODECS.put(Objects.requireNonNull(type), Objects.requireNonNull(codec));
+	}
+
+	/**
+	 * Gets the codec for a type, building it if needed.
+	 *
+	 * @param <T>  The type.
+	 * @param type The type.
+	 * @return The codec.
+	 * @throws IllegalArgumentException If the type can't be bound.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> @NotNull JsonCodec<T> codec(@NotNull Class<T> type) throws IllegalArgumentException {
+		return (JsonCodec<T>) codec((Type) type);
+	}
+
+	/**
+	 * Gets the codec for a possibly generic type, building it if needed.
+	 *
+	 * @param type The type.
+	 * @return The codec.
+	 * @throws IllegalArgumentException If the type can't be bound.
+	 */
+	public static @NotNull JsonCodec<?> codec(@NotNull Type type) throws IllegalArgumentException {
+		JsonCodec<?> result = CODECS.get(type);
+
+		if (result == null) {
+			// built outside of the map, since building may need other codecs
+			result = Codecs.create(type);
+			JsonCodec<?> existing = CODECS.putIfAbsent(type, result);
+
+			if (existing != null) {
+				result = existing;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the codec for a type if it has been registered or built already.
+	 */
+	static @Nullable JsonCodec<?> cached(Type type) {
+		return CODECS.get(type);
+	}
+
+	public static <T> @Nullable T read(byte @NotNull [] in, @NotNull Class<T> type)
+			throws JsonParseException, IOException {
+		return type.cast(readDocument(new JsonReader(in), type));
+	}
+
+	/**
+	 * Reads an object from a UTF-8 stream. The stream is not closed.
+	 *
+	 * @param <T>  The type.
+	 * @param in   The stream.
+	 * @param type The type.
+	 * @return The object, or <code>null</code> if the document is null.
+	 */
+	public static <T> @Nullable T read(@NotNull InputStream in, @NotNull Class<T> type)
+			throws JsonParseException, IOException {
+		return type.cast(readDocument(new JsonReader(new Utf8Parser().setup(Objects.requireNonNull(in)), null),
+				type));
+	}
+
+	public static <T> @Nullable T read(@NotNull Reader in, @NotNull Class<T> type)
+			throws JsonParseException, IOException {
+		return type.cast(readDocument(new JsonReader(new ReaderParser().setup(Objects.requireNonNull(in)), null),
+				type));
+	}
+
+	public static <T> @Nullable T fromString(@NotNull String in, @NotNull Class<T> type)
+			throws JsonParseException, IOException {
+		return type.cast(readDocument(new JsonReader(new ReaderParser().setup(Objects.requireNonNull(in)), null),
+				type));
+	}
+
+	/**
+	 * Reads the next value from a reader as an object, which allows binding
+	 * part of a larger document.
+	 *
+	 * @param <T>    The type.
+	 * @param reader The reader.
+	 * @param type   The type.
+	 * @return The object, or <code>null</code> if the value is null.
+	 */
+	public static <T> @Nullable T read(@NotNull JsonReader reader, @NotNull Class<T> type)
+			throws JsonParseException, IOException {
+		return type.cast(read(reader, (Type) type));
+	}
+
+	/**
+	 * Reads the next value from a reader as a possibly generic type, such as
+	 * <code>List&lt;Order&gt;</code>.
+	 *
+	 * @param reader The reader.
+	 * @param type   The type.
+	 * @return The object, or <code>null</code> if the value is null.
+	 */
+	public static @Nullable Object read(@NotNull JsonReader reader, @NotNull Type type)
+			throws JsonParseException, IOException {
+		return Codecs.readNull(reader, type) ? null : codec(type).read(reader);
+	}
+
+	private static Object readDocument(JsonReader reader, Type type) throws IOException {
+		try {
+			Object result = read(reader, type);
+			// checks that nothing follows
+			reader.peek();
+			return result;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes an object to a stream in UTF-8. The stream is not closed.
+	 *
+	 * @param value The object.
+	 * @param out   The stream.
+	 */
+	public static void write(@Nullable Object value, @NotNull OutputStream out) throws IOException {
+		writeDocument(value, JsonWriter.of(out));
+	}
+
+	public static void write(@Nullable Object value, @NotNull Writer out) throws IOException {
+		writeDocument(value, JsonWriter.of(out));
+	}
+
+	/**
+	 * Writes an object as the next value of a writer, according to its class.
+	 *
+	 * @param value  The object.
+	 * @param writer The writer.
+	 */
+	public static void write(@Nullable Object value, @NotNull JsonWriter writer) throws IOException {
+		Codecs.writeDynamic(writer, value);
+	}
+
+	public static @NotNull String toString(@Nullable Object value) {
+		BufferPool pool = BufferPool.getDefault();
+		StringBuilder out = pool.takeBuilder();
+
+		try {
+			writeDocument(value, new CharJsonWriter(out));
+			return out.toString();
+		} catch (IOException error) {
+			// a StringBuilder cannot fail
+			throw new UncheckedIOException(error);
+		} finally {
+			pool.giveBuilder(out);
+		}
+	}
+
+	public static byte @NotNull [] toUtf8Bytes(@Nullable Object value) {
+		Utf8JsonWriter writer = new Utf8JsonWriter();
+
+		try {
+			write(value, writer);
+			return writer.toByteArray();
+		} catch (IOException error) {
+			// there is no sink to fail
+			throw new UncheckedIOException(error);
+		} finally {
+			writer.recycle();
+		}
+	}
+
+	private static void writeDocument(Object value, JsonWriter writer) throws IOException {
+		try {
+			write(value, writer);
+		} finally {
+			writer.finish();
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads and writes one Java type straight from and to a stream of tokens,
+ * without building a tree. Codecs are never given null, which
+ * {@link JsonBinder} handles itself.
+ *
+ * @param <T> The type.
+ * @see JsonBinder#register(Class, JsonCodec)
+ */
+public interface JsonCodec<T> {
+
+	/**
+	 * Reads the next value from a reader.
+	 *
+	 * @param reader The reader, positioned before a value which isn't null.
+	 * @return The value.
+	 */
+	@NotNull
+	T read(@NotNull JsonReader reader) throws IOException;
+
+	/**
+	 * Writes a value to a writer.
+	 *
+	 * @param writer The writer, ready for a value.
+	 * @param value  The value.
+	 */
+	void write(@NotNull JsonWriter writer, @NotNull T value) throws IOException;
+
+}
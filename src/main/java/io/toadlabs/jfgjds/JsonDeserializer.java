@@ -5,10 +5,28 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import io.toadlabs.jfgjds.data.JsonValue;
 import io.toadlabs.jfgjds.exception.JsonParseException;
@@ -16,11 +34,24 @@ import io.toadlabs.jfgjds.exception.JsonParseException;
 public final class JsonDeserializer {
 
 	// Used to prevent unnecessary allocations.
-	private static final ThreadLocal<Parser> PARSER = new ThreadLocal<Parser>() {
+	private static final ThreadLocal<ReaderParser> PARSER = new ThreadLocal<ReaderParser>() {
 
 		@Override
-		protected Parser initialValue() {
-			return new Parser();
+		protected ReaderParser initialValue() {
+			ReaderParser parser = new ReaderParser();
+			parser.kept = true;
+			return parser;
+		}
+
+	};
+
+	private static final ThreadLocal<Utf8Parser> UTF8_PARSER = new ThreadLocal<Utf8Parser>() {
+
+		@Override
+		protected Utf8Parser initialValue() {
+			Utf8Parser parser = new Utf8Parser();
+			parser.kept = true;
+			return parser;
 		}
 
 	};
@@ -30,7 +61,13 @@ public final class JsonDeserializer {
 	}
 
 	public static @NotNull JsonValue read(@NotNull Reader in) throws JsonParseException, IOException {
-		return PARSER.get().setup(Objects.requireNonNull(in)).readSingleValue();
+		ReaderParser parser = PARSER.get().setup(Objects.requireNonNull(in));
+
+		try {
+			return parser.readSingleValue();
+		} finally {
+			parser.release();
+		}
 	}
 
 	public static @NotNull JsonValue read(@NotNull InputStream in, @NotNull String charset)
@@ -40,11 +77,537 @@ public final class JsonDeserializer {
 
 	public static @NotNull JsonValue read(@NotNull InputStream in, @NotNull Charset charset)
 			throws JsonParseException, IOException {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			return read(in);
+		}
+
 		return read(new InputStreamReader(Objects.requireNonNull(in), Objects.requireNonNull(charset)));
 	}
 
+	/**
+	 * Reads a UTF-8 stream, without decoding anything outside of strings.
+	 *
+	 * @param in The stream.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue read(@NotNull InputStream in) throws JsonParseException, IOException {
+		return readUtf8(UTF8_PARSER.get().setup(Objects.requireNonNull(in)));
+	}
+
+	/**
+	 * Reads UTF-8 bytes, without decoding anything outside of strings.
+	 *
+	 * @param in The bytes.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue read(byte @NotNull [] in) throws JsonParseException, IOException {
+		return read(in, 0, in.length);
+	}
+
+	/**
+	 * Reads a range of UTF-8 bytes, without decoding anything outside of
+	 * strings.
+	 *
+	 * @param in     The bytes.
+	 * @param offset The index of the first byte.
+	 * @param length The number of bytes.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue read(byte @NotNull [] in, int offset, int length)
+			throws JsonParseException, IOException {
+		if (offset < 0 || length < 0 || offset > in.length - length) {
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+					+ ") out of bounds for length " + in.length);
+		}
+
+		return readUtf8(UTF8_PARSER.get().setup(in, offset, length));
+	}
+
+	/**
+	 * Reads the remaining UTF-8 bytes of a buffer, without decoding anything
+	 * outside of strings. The position of the buffer is left untouched.
+	 *
+	 * @param in The buffer.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue read(@NotNull ByteBuffer in) throws JsonParseException, IOException {
+		return readUtf8(UTF8_PARSER.get().setup(Objects.requireNonNull(in)));
+	}
+
+	/**
+	 * Reads a UTF-8 file by mapping it into memory, so that it is served
+	 * straight from the page cache.
+	 *
+	 * @param path The file.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue read(@NotNull Path path) throws JsonParseException, IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+
+	/**
+	 * Reads a UTF-8 file from the channel's position to its end, by mapping it
+	 * into memory. The position of the channel is left untouched.
+	 *
+	 * @param in The file.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue read(@NotNull FileChannel in) throws JsonParseException, IOException {
+		return readUtf8(UTF8_PARSER.get().setup(Objects.requireNonNull(in)));
+	}
+
+	/**
+	 * Reads UTF-8 bytes, parsing a top-level array on the pool. The elements
+	 * which start in each chunk of the input are parsed separately, then put
+	 * together in order. Anything other than a large array is read as normal.
+	 *
+	 * @param in   The bytes.
+	 * @param pool The pool.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue readParallel(byte @NotNull [] in, @NotNull ForkJoinPool pool)
+			throws JsonParseException, IOException {
+		return ParallelArrayParser.read(in, 0, in.length, Objects.requireNonNull(pool));
+	}
+
+	/**
+	 * Reads UTF-8 bytes, parsing a top-level array on the common pool.
+	 *
+	 * @param in The bytes.
+	 * @return The value.
+	 * @see #readParallel(byte[], ForkJoinPool)
+	 */
+	public static @NotNull JsonValue readParallel(byte @NotNull [] in) throws JsonParseException, IOException {
+		return readParallel(in, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Reads a UTF-8 file, parsing a top-level array on the pool. The file is read
+	 * into memory first, so it must be under 2 GiB.
+	 *
+	 * @param path The file.
+	 * @param pool The pool.
+	 * @return The value.
+	 * @see #readParallel(byte[], ForkJoinPool)
+	 */
+	public static @NotNull JsonValue readParallel(@NotNull Path path, @NotNull ForkJoinPool pool)
+			throws JsonParseException, IOException {
+		return readParallel(Files.readAllBytes(path), pool);
+	}
+
 	public static @NotNull JsonValue fromString(@NotNull String in) throws JsonParseException, IOException {
-		return read(new StringReader(Objects.requireNonNull(in)));
+		ReaderParser parser = PARSER.get().setup(Objects.requireNonNull(in));
+
+		try {
+			return parser.readSingleValue();
+		} finally {
+			parser.release();
+		}
+	}
+
+	/**
+	 * Reads only the values which JSON Pointers point to, from UTF-8 bytes.
+	 * Everything else is skipped without being built, and reading stops once
+	 * every pointer has been found - so the rest of the document isn't
+	 * validated.
+	 *
+	 * @param in       The bytes.
+	 * @param pointers The pointers.
+	 * @return The value of each pointer in order, or <code>null</code> for
+	 *         those which aren't in the document.
+	 */
+	public static @NotNull List<@Nullable JsonValue> extract(byte @NotNull [] in, @NotNull JsonPointer... pointers)
+			throws JsonParseException, IOException {
+		return extract(UTF8_PARSER.get().setup(in, 0, in.length), pointers);
+	}
+
+	/**
+	 * Reads only the values which JSON Pointers point to, from a UTF-8 stream.
+	 * The stream is left wherever reading stopped.
+	 *
+	 * @param in       The stream.
+	 * @param pointers The pointers.
+	 * @return The value of each pointer in order, or <code>null</code> for
+	 *         those which aren't in the document.
+	 * @see #extract(byte[], JsonPointer...)
+	 */
+	public static @NotNull List<@Nullable JsonValue> extract(@NotNull InputStream in,
+			@NotNull JsonPointer... pointers) throws JsonParseException, IOException {
+		return extract(UTF8_PARSER.get().setup(Objects.requireNonNull(in)), pointers);
+	}
+
+	/**
+	 * Reads only the values which JSON Pointers point to, from characters.
+	 *
+	 * @param in       The input.
+	 * @param pointers The pointers.
+	 * @return The value of each pointer in order, or <code>null</code> for
+	 *         those which aren't in the document.
+	 * @see #extract(byte[], JsonPointer...)
+	 */
+	public static @NotNull List<@Nullable JsonValue> extract(@NotNull Reader in, @NotNull JsonPointer... pointers)
+			throws JsonParseException, IOException {
+		return extract(PARSER.get().setup(Objects.requireNonNull(in)), pointers);
+	}
+
+	public static @NotNull List<@Nullable JsonValue> extract(@NotNull String in, @NotNull JsonPointer... pointers)
+			throws JsonParseException, IOException {
+		return extract(PARSER.get().setup(Objects.requireNonNull(in)), pointers);
+	}
+
+	private static List<JsonValue> extract(Parser parser, JsonPointer[] pointers) throws IOException {
+		try {
+			return new PointerMatcher(pointers).match(parser);
+		} finally {
+			parser.release();
+		}
+	}
+
+	/**
+	 * Reads UTF-8 bytes, keeping only the parts which a projection selects.
+	 * Everything else is skipped without being built, though the whole
+	 * document is still validated.
+	 *
+	 * @param in         The bytes.
+	 * @param projection The projection.
+	 * @return The projected value.
+	 */
+	public static @NotNull JsonValue readProjected(byte @NotNull [] in, @NotNull JsonProjection projection)
+			throws JsonParseException, IOException {
+		return readProjected(UTF8_PARSER.get().setup(in, 0, in.length), projection);
+	}
+
+	/**
+	 * Reads a UTF-8 stream, keeping only the parts which a projection selects.
+	 *
+	 * @param in         The stream.
+	 * @param projection The projection.
+	 * @return The projected value.
+	 * @see #readProjected(byte[], JsonProjection)
+	 */
+	public static @NotNull JsonValue readProjected(@NotNull InputStream in, @NotNull JsonProjection projection)
+			throws JsonParseException, IOException {
+		return readProjected(UTF8_PARSER.get().setup(Objects.requireNonNull(in)), projection);
+	}
+
+	/**
+	 * Reads characters, keeping only the parts which a projection selects.
+	 *
+	 * @param in         The input.
+	 * @param projection The projection.
+	 * @return The projected value.
+	 * @see #readProjected(byte[], JsonProjection)
+	 */
+	public static @NotNull JsonValue readProjected(@NotNull Reader in, @NotNull JsonProjection projection)
+			throws JsonParseException, IOException {
+		return readProjected(PARSER.get().setup(Objects.requireNonNull(in)), projection);
+	}
+
+	public static @NotNull JsonValue readProjected(@NotNull String in, @NotNull JsonProjection projection)
+			throws JsonParseException, IOException {
+		return readProjected(PARSER.get().setup(Objects.requireNonNull(in)), projection);
+	}
+
+	private static JsonValue readProjected(Parser parser, JsonProjection projection) throws IOException {
+		Objects.requireNonNull(projection);
+
+		try {
+			return parser.readSingleValue(projection);
+		} finally {
+			parser.release();
+		}
+	}
+
+	/**
+	 * Reads many small documents. Each may be a <code>String</code>, or UTF-8 as
+	 * a <code>byte[]</code> or {@link ByteBuffer}. The parsers, their buffers
+	 * and the symbol table are set up once and reused for every document, and
+	 * one which fails doesn't stop the rest.
+	 *
+	 * @param inputs The documents.
+	 * @return The result of each document, in order.
+	 * @throws IllegalArgumentException If a document is of another type.
+	 */
+	public static @NotNull List<ParseResult> readBatch(@NotNull Collection<?> inputs) {
+		Object[] array = checkBatch(inputs);
+		ParseResult[] results = new ParseResult[array.length];
+		readBatch(array, results, 0, array.length);
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Reads many small documents, spread over the executor in up to
+	 * <code>parallelism</code> contiguous slices. One of the slices is read on
+	 * the calling thread, which waits for the rest.
+	 *
+	 * @param inputs      The documents.
+	 * @param executor    The executor.
+	 * @param parallelism The most slices to read at once.
+	 * @return The result of each document, in order.
+	 * @throws IllegalArgumentException If a document is of another type, or
+	 *                                  <code>parallelism</code> is less than 1.
+	 * @see #readBatch(Collection)
+	 */
+	public static @NotNull List<ParseResult> readBatch(@NotNull Collection<?> inputs, @NotNull Executor executor,
+			int parallelism) {
+		Objects.requireNonNull(executor);
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1, but got " + parallelism);
+		}
+
+		Object[] array = checkBatch(inputs);
+		ParseResult[] results = new ParseResult[array.length];
+		int slices = Math.min(parallelism, array.length);
+		List<FutureTask<Void>> tasks = new ArrayList<>(slices);
+
+		for (int slice = 1; slice < slices; slice++) {
+			int from = (int) ((long) array.length * slice / slices);
+			int to = (int) ((long) array.length * (slice + 1) / slices);
+			FutureTask<Void> task = new FutureTask<>(() -> readBatch(array, results, from, to), null);
+			tasks.add(task);
+			executor.execute(task);
+		}
+
+		readBatch(array, results, 0, slices == 0 ? 0 : array.length / slices);
+
+		for (FutureTask<Void> task : tasks) {
+			try {
+				task.get();
+			} catch (InterruptedException error) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the batch", error);
+			} catch (ExecutionException error) {
+				Throwable cause = error.getCause();
+
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+
+				throw new IllegalStateException(cause);
+			}
+		}
+
+		return Arrays.asList(results);
+	}
+
+	private static Object[] checkBatch(Collection<?> inputs) {
+		Object[] array = inputs.toArray();
+
+		for (Object input : array) {
+			if (!(input instanceof String || input instanceof byte[] || input instanceof ByteBuffer)) {
+				throw new IllegalArgumentException("Cannot read " + (input == null ? "null" : input.getClass().getName())
+						+ ", expected a String, byte[] or ByteBuffer");
+			}
+		}
+
+		return array;
+	}
+
+	private static void readBatch(Object[] inputs, ParseResult[] results, int from, int to) {
+		ReaderParser parser = null;
+		Utf8Parser utf8Parser = null;
+
+		try {
+			for (int index = from; index < to; index++) {
+				Object input = inputs[index];
+
+				try {
+					if (input instanceof String) {
+						if (parser == null) {
+							parser = PARSER.get();
+						}
+
+						results[index] = ParseResult.success(parser.setup((String) input).readSingleValue());
+					} else {
+						if (utf8Parser == null) {
+							utf8Parser = UTF8_PARSER.get();
+						}
+
+						if (input instanceof byte[]) {
+							byte[] bytes = (byte[]) input;
+							utf8Parser.setup(bytes, 0, bytes.length);
+						} else {
+							utf8Parser.setup((ByteBuffer) input);
+						}
+
+						results[index] = ParseResult.success(utf8Parser.readSingleValue());
+					}
+				} catch (IOException error) {
+					results[index] = ParseResult.failure(error);
+				} catch (StackOverflowError error) {
+					// one document nested too deeply shouldn't lose the others
+					results[index] = ParseResult.failure(new JsonParseException("Nested too deeply", error));
+				} catch (RuntimeException error) {
+					results[index] = ParseResult.failure(new JsonParseException("Failed to read: " + error, error));
+				}
+			}
+		} finally {
+			if (parser != null) {
+				parser.release();
+			}
+
+			if (utf8Parser != null) {
+				utf8Parser.release();
+			}
+		}
+	}
+
+	/**
+	 * Reads consecutive top-level values from characters, such as JSON Lines or
+	 * concatenated JSON. Values may be separated by any whitespace. The input is
+	 * read as the stream is consumed, with one parser and buffer throughout.
+	 * <p>
+	 * Errors are thrown as {@link UncheckedIOException}s from the stream's
+	 * terminal operation. The input is not closed.
+	 *
+	 * @param in The input.
+	 * @return The values, in order.
+	 */
+	public static @NotNull Stream<JsonValue> readAll(@NotNull Reader in) throws IOException {
+		return stream(new ReaderParser().setup(Objects.requireNonNull(in)));
+	}
+
+	public static @NotNull Stream<JsonValue> readAll(@NotNull InputStream in, @NotNull Charset charset)
+			throws IOException {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			return readAll(in);
+		}
+
+		return readAll(new InputStreamReader(Objects.requireNonNull(in), Objects.requireNonNull(charset)));
+	}
+
+	/**
+	 * Reads consecutive top-level values from a UTF-8 stream, such as JSON Lines
+	 * or concatenated JSON.
+	 *
+	 * @param in The input.
+	 * @return The values, in order.
+	 * @see #readAll(Reader)
+	 */
+	public static @NotNull Stream<JsonValue> readAll(@NotNull InputStream in) throws IOException {
+		return stream(new Utf8Parser().setup(Objects.requireNonNull(in)));
+	}
+
+	/**
+	 * Reads a UTF-8 stream with one value per line, parsing blocks of lines on
+	 * the executor. The values are still given in order, and only a few blocks
+	 * are read ahead of the consumer. Blank lines are skipped.
+	 * <p>
+	 * Unlike {@link #readAll(InputStream)}, a value must not span lines. Errors
+	 * are thrown as {@link UncheckedIOException}s, with the line number. Closing
+	 * the stream cancels any blocks which haven't been parsed. The input is not
+	 * closed.
+	 *
+	 * @param in       The input.
+	 * @param executor The executor to parse on.
+	 * @return The values, in order.
+	 */
+	public static @NotNull Stream<JsonValue> readLines(@NotNull InputStream in, @NotNull Executor executor) {
+		LineSpliterator lines = new LineSpliterator(Objects.requireNonNull(in), Objects.requireNonNull(executor),
+				Runtime.getRuntime().availableProcessors() * 2);
+		return StreamSupport.stream(lines, false).onClose(lines::close);
+	}
+
+	private static Stream<JsonValue> stream(Parser parser) {
+		ValueSpliterator values = new ValueSpliterator(parser);
+		return StreamSupport.stream(values, false).onClose(values::close);
+	}
+
+	/**
+	 * Reads UTF-8 bytes lazily. The whole document is validated up front, but
+	 * each object and array is only decoded when it is first accessed. The
+	 * bytes are kept until then, so they must not be modified.
+	 *
+	 * @param in The bytes.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue readLazy(byte @NotNull [] in) throws JsonParseException {
+		return LazyDocument.read(in, 0, in.length);
+	}
+
+	/**
+	 * Reads a string lazily. The whole document is validated up front, but
+	 * each object and array is only decoded when it is first accessed.
+	 *
+	 * @param in The string.
+	 * @return The value.
+	 */
+	public static @NotNull JsonValue readLazy(@NotNull String in) throws JsonParseException {
+		return readLazy(in.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Parses characters, firing events on the handler instead of building a
+	 * tree. The handler may itself use the deserializer, since the parser is
+	 * not the one shared by the thread.
+	 *
+	 * @param in      The input.
+	 * @param handler The handler.
+	 * @return <code>false</code> if the handler stopped parsing early.
+	 */
+	public static boolean parse(@NotNull Reader in, @NotNull JsonHandler handler)
+			throws JsonParseException, IOException {
+		Objects.requireNonNull(handler);
+		ReaderParser parser = new ReaderParser().setup(Objects.requireNonNull(in));
+
+		try {
+			return parser.parseSingleValue(handler);
+		} finally {
+			parser.release();
+		}
+	}
+
+	public static boolean parse(@NotNull InputStream in, @NotNull Charset charset, @NotNull JsonHandler handler)
+			throws JsonParseException, IOException {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			return parse(in, handler);
+		}
+
+		return parse(new InputStreamReader(Objects.requireNonNull(in), Objects.requireNonNull(charset)), handler);
+	}
+
+	public static boolean parse(@NotNull InputStream in, @NotNull JsonHandler handler)
+			throws JsonParseException, IOException {
+		Objects.requireNonNull(handler);
+		return parseUtf8(new Utf8Parser().setup(Objects.requireNonNull(in)), handler);
+	}
+
+	public static boolean parse(byte @NotNull [] in, @NotNull JsonHandler handler)
+			throws JsonParseException, IOException {
+		Objects.requireNonNull(handler);
+		return parseUtf8(new Utf8Parser().setup(in, 0, in.length), handler);
+	}
+
+	public static boolean parse(@NotNull ByteBuffer in, @NotNull JsonHandler handler)
+			throws JsonParseException, IOException {
+		Objects.requireNonNull(handler);
+		return parseUtf8(new Utf8Parser().setup(Objects.requireNonNull(in)), handler);
+	}
+
+	public static boolean parse(@NotNull String in, @NotNull JsonHandler handler)
+			throws JsonParseException, IOException {
+		return parse(new StringReader(Objects.requireNonNull(in)), handler);
+	}
+
+	private static boolean parseUtf8(Utf8Parser parser, JsonHandler handler) throws IOException {
+		try {
+			return parser.parseSingleValue(handler);
+		} finally {
+			parser.release();
+		}
+	}
+
+	private static JsonValue readUtf8(Utf8Parser parser) throws IOException {
+		try {
+			return parser.readSingleValue();
+		} finally {
+			parser.release();
+		}
 	}
 
 }
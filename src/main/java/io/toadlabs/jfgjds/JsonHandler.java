@@ -0,0 +1,85 @@
+package io.toadlabs.jfgjds;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives events from the parser in document order, without any
+ * {@link io.toadlabs.jfgjds.data.JsonValue}s being built. Every event returns
+ * whether parsing should continue, so a handler can stop as soon as it has
+ * what it needs. Events which aren't overridden are ignored.
+ *
+ * @see JsonDeserializer#parse(java.io.Reader, JsonHandler)
+ */
+public interface JsonHandler {
+
+	default boolean startObject() {
+		return true;
+	}
+
+	/**
+	 * Called for each key within an object, before its value.
+	 *
+	 * @param key The key.
+	 * @return <code>false</code> to stop parsing.
+	 */
+	default boolean key(@NotNull String key) {
+		return true;
+	}
+
+	default boolean endObject() {
+		return true;
+	}
+
+	default boolean startArray() {
+		return true;
+	}
+
+	default boolean endArray() {
+		return true;
+	}
+
+	default boolean string(@NotNull String value) {
+		return true;
+	}
+
+	/**
+	 * Called for each number, unless {@link #rawNumbers()} is
+	 * <code>true</code>.
+	 *
+	 * @param value The number.
+	 * @return <code>false</code> to stop parsing.
+	 */
+	default boolean number(double value) {
+		return true;
+	}
+
+	/**
+	 * Gets whether numbers should be passed to {@link #rawNumber(CharSequence)}
+	 * as they appear in the input, instead of being parsed.
+	 *
+	 * @return <code>true</code> for raw numbers.
+	 */
+	default boolean rawNumbers() {
+		return false;
+	}
+
+	/**
+	 * Called for each number if {@link #rawNumbers()} is <code>true</code>.
+	 *
+	 * @param value The number as it appears in the input. Only valid until the
+	 *              method returns.
+	 * @return <code>false</code> to stop parsing.
+	 */
+	default boolean rawNumber(@NotNull CharSequence value) {
+		return true;
+	}
+
+	default boolean booleanValue(boolean value) {
+		return true;
+	}
+
+	default boolean nullValue() {
+		return true;
+	}
+
+}
@@ -0,0 +1,63 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An object key which has been quoted, escaped and encoded ahead of time, so
+ * that writing it with {@link JsonWriter#name(JsonName)} is a copy. Worth
+ * keeping in a constant for keys which are written often.
+ */
+public final class JsonName {
+
+	private final String name;
+	// the quoted key and its colon
+	final String encoded;
+	final byte[] utf8;
+
+	private JsonName(String name, String encoded) {
+		this.name = name;
+		this.encoded = encoded;
+		utf8 = encoded.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Encodes a key.
+	 *
+	 * @param name The key.
+	 * @return The encoded key.
+	 */
+	public static @NotNull JsonName of(@NotNull String name) {
+		StringBuilder out = new StringBuilder(name.length() + 3);
+		CharJsonWriter writer = new CharJsonWriter(out);
+
+		try {
+			writer.writeString(name);
+			writer.writeRaw(':');
+			writer.finish();
+		} catch (IOException error) {
+			// a StringBuilder cannot fail
+			throw new UncheckedIOException(error);
+		}
+
+		return new JsonName(name, out.toString());
+	}
+
+	/**
+	 * Gets the key, as it was before encoding.
+	 *
+	 * @return The key.
+	 */
+	public @NotNull String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
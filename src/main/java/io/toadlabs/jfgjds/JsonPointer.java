@@ -0,0 +1,175 @@
+package io.toadlabs.jfgjds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import io.toadlabs.jfgjds.data.JsonArray;
+import io.toadlabs.jfgjds.data.JsonValue;
+
+/**
+ * A JSON Pointer, as in RFC 6901, such as <code>/items/0/price</code>. It can
+ * be looked up in a tree with {@link #get(JsonValue)}, or while reading with
+ * {@link JsonDeserializer#extract(byte[], JsonPointer...)}, which builds
+ * nothing else.
+ */
+public final class JsonPointer {
+
+	private final String pointer;
+	private final String[] tokens;
+	// the array index each token selects, or -1 if it can't select one
+	private final int[] indexes;
+
+	private JsonPointer(String pointer, String[] tokens) {
+		this.pointer = pointer;
+		this.tokens = tokens;
+		indexes = new int[tokens.length];
+
+		for (int index = 0; index < tokens.length; index++) {
+			indexes[index] = toIndex(tokens[index]);
+		}
+	}
+
+	/**
+	 * Parses a pointer. The empty string points to the whole document, and
+	 * otherwise each token starts with a slash, with <code>~1</code> standing for
+	 * a slash and <code>~0</code> for a tilde.
+	 *
+	 * @param pointer The pointer.
+	 * @return The pointer.
+	 * @throws IllegalArgumentException If the pointer is malformed.
+	 */
+	public static @NotNull JsonPointer parse(@NotNull String pointer) throws IllegalArgumentException {
+		if (pointer.isEmpty()) {
+			return new JsonPointer(pointer, new String[0]);
+		}
+
+		if (pointer.charAt(0) != '/') {
+			throw new IllegalArgumentException("JSON Pointer must start with '/': " + pointer);
+		}
+
+		List<String> tokens = new ArrayList<>();
+		StringBuilder token = new StringBuilder();
+
+		for (int index = 1; index <= pointer.length(); index++) {
+			char character = index == pointer.length() ? '/' : pointer.charAt(index);
+
+			if (character == '/') {
+				tokens.add(token.toString());
+				token.setLength(0);
+			} else if (character == '~') {
+				char escaped = ++index < pointer.length() ? pointer.charAt(index) : 0;
+
+				if (escaped == '0') {
+					token.append('~');
+				} else if (escaped == '1') {
+					token.append('/');
+				} else {
+					throw new IllegalArgumentException("Invalid escape in JSON Pointer: " + pointer);
+				}
+			} else {
+				token.append(character);
+			}
+		}
+
+		return new JsonPointer(pointer, tokens.toArray(new String[0]));
+	}
+
+	private static int toIndex(String token) {
+		int length = token.length();
+
+		// no leading zeros, and small enough for an int
+		if (length == 0 || length > 9 || (token.charAt(0) == '0' && length > 1)) {
+			return -1;
+		}
+
+		int result = 0;
+
+		for (int index = 0; index < length; index++) {
+			char character = token.charAt(index);
+
+			if (character < '0' || character > '9') {
+				return -1;
+			}
+
+			result = result * 10 + (character - '0');
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the reference tokens, unescaped.
+	 *
+	 * @return The tokens.
+	 */
+	public @NotNull List<String> getTokens() {
+		return Collections.unmodifiableList(Arrays.asList(tokens));
+	}
+
+	int size() {
+		return tokens.length;
+	}
+
+	String token(int index) {
+		return tokens[index];
+	}
+
+	int index(int index) {
+		return indexes[index];
+	}
+
+	/**
+	 * Looks up the value in a tree.
+	 *
+	 * @param root The document.
+	 * @return The value, or <code>null</code> if nothing is there.
+	 */
+	public @Nullable JsonValue get(@NotNull JsonValue root) {
+		JsonValue result = Objects.requireNonNull(root);
+
+		for (int index = 0; index < tokens.length && result != null; index++) {
+			result = step(result, index);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Follows one token from a value.
+	 *
+	 * @return The value, or <code>null</code> if nothing is there.
+	 */
+	JsonValue step(JsonValue value, int index) {
+		if (value.isObject()) {
+			return value.asObject().get(tokens[index]);
+		} else if (value.isArray()) {
+			JsonArray array = value.asArray();
+			int element = indexes[index];
+			return element != -1 && element < array.size() ? array.get(element) : null;
+		}
+
+		return null;
+	}
+
+	@Override
+	public int hashCode() {
+		return pointer.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof JsonPointer && ((JsonPointer) obj).pointer.equals(pointer);
+	}
+
+	@Override
+	public String toString() {
+		return pointer;
+	}
+
+}
@@ -0,0 +1,218 @@
+package io.toadlabs.jfgjds;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Which parts of a document to keep while reading, as a tree of wanted keys
+ * and array wildcards. Everything else is skipped over without being built.
+ * <p>
+ * Objects keep only the keys which are listed. Arrays have each element
+ * projected by the element projection, or are kept whole if there is none.
+ * Any other value is kept whole.
+ *
+ * <pre>
+ * JsonProjection projection = JsonProjection.of("id", "user.name", "items[].price");
+ * JsonValue value = JsonDeserializer.readProjected(in, projection);
+ * </pre>
+ */
+public final class JsonProjection {
+
+	// stands for a value which is kept whole
+	private static final JsonProjection WHOLE = new JsonProjection();
+
+	private final Map<String, JsonProjection> fields = new HashMap<>();
+	private JsonProjection elements;
+
+	private JsonProjection() {
+	}
+
+	/**
+	 * Creates a projection which keeps nothing, to be added to.
+	 *
+	 * @return The projection.
+	 */
+	public static @NotNull JsonProjection create() {
+		return new JsonProjection();
+	}
+
+	/**
+	 * Creates a projection from paths of keys separated by dots, where
+	 * <code>[]</code> stands for every element of an array. For example,
+	 * <code>items[].price</code> keeps the price of every item, and
+	 * <code>[].id</code> the id of every element of a top-level array.
+	 *
+	 * @param paths The paths.
+	 * @return The projection.
+	 * @throws IllegalArgumentException If a path is malformed.
+	 */
+	public static @NotNull JsonProjection of(@NotNull String... paths) throws IllegalArgumentException {
+		JsonProjection result = new JsonProjection();
+
+		for (String path : paths) {
+			result.addPath(path);
+		}
+
+		return result;
+	}
+
+	private void addPath(String path) {
+		JsonProjection node = this;
+		int index = 0;
+		int length = path.length();
+
+		if (length == 0) {
+			throw new IllegalArgumentException("Empty projection path");
+		}
+
+		while (true) {
+			boolean last;
+
+			if (path.startsWith("[]", index)) {
+				index += 2;
+				last = index == length;
+
+				if (last) {
+					node.elements = WHOLE;
+					return;
+				}
+
+				if (node.elements == WHOLE) {
+					// a whole array covers anything deeper
+					return;
+				} else if (node.elements == null) {
+					node.elements = new JsonProjection();
+				}
+
+				node = node.elements;
+			} else {
+				int end = index;
+
+				while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+					end++;
+				}
+
+				if (end == index) {
+					throw new IllegalArgumentException("Empty key in projection path: " + path);
+				}
+
+				String key = path.substring(index, end);
+				index = end;
+				last = index == length;
+
+				if (last) {
+					node.fields.put(key, WHOLE);
+					return;
+				}
+
+				JsonProjection child = node.fields.get(key);
+
+				if (child == WHOLE) {
+					return;
+				} else if (child == null) {
+					child = new JsonProjection();
+					node.fields.put(key, child);
+				}
+
+				node = child;
+			}
+
+			if (path.charAt(index) == '.') {
+				index++;
+
+				if (index == length) {
+					throw new IllegalArgumentException("Projection path ends with '.': " + path);
+				}
+			} else if (!path.startsWith("[]", index)) {
+				throw new IllegalArgumentException("Expected '.' or '[]' in projection path: " + path);
+			}
+		}
+	}
+
+	/**
+	 * Keeps the whole value of a key.
+	 *
+	 * @param key The key.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonProjection include(@NotNull String key) {
+		fields.put(Objects.requireNonNull(key), WHOLE);
+		return this;
+	}
+
+	/**
+	 * Keeps part of the value of a key. If the key is already kept whole, it
+	 * stays that way.
+	 *
+	 * @param key    The key.
+	 * @param nested The projection of its value.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonProjection include(@NotNull String key, @NotNull JsonProjection nested) {
+		Objects.requireNonNull(nested);
+
+		if (fields.get(Objects.requireNonNull(key)) != WHOLE) {
+			fields.put(key, nested);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Projects every element of an array.
+	 *
+	 * @param nested The projection of each element.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonProjection elements(@NotNull JsonProjection nested) {
+		elements = Objects.requireNonNull(nested);
+		return this;
+	}
+
+	boolean isWhole() {
+		return this == WHOLE;
+	}
+
+	/**
+	 * Gets the projection of a key's value.
+	 *
+	 * @return The projection, or <code>null</code> if the key isn't wanted.
+	 */
+	JsonProjection field(String key) {
+		return fields.get(key);
+	}
+
+	JsonProjection elements() {
+		return elements;
+	}
+
+	@Override
+	public String toString() {
+		if (this == WHOLE) {
+			return "*";
+		}
+
+		StringBuilder result = new StringBuilder("{");
+		fields.forEach((key, value) -> {
+			if (result.length() > 1) {
+				result.append(", ");
+			}
+
+			result.append(key).append(": ").append(value);
+		});
+
+		if (elements != null) {
+			if (result.length() > 1) {
+				result.append(", ");
+			}
+
+			result.append("[]: ").append(elements);
+		}
+
+		return result.append('}').toString();
+	}
+
+}
@@ -0,0 +1,411 @@
+package io.toadlabs.jfgjds;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+
+import io.toadlabs.jfgjds.data.JsonNumber;
+import io.toadlabs.jfgjds.data.JsonValue;
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * A pull parser, which reads one token at a time instead of building the whole
+ * document. Only the nesting of the current position is kept in memory.
+ *
+ * <pre>
+ * try (JsonReader reader = new JsonReader(in)) {
+ *     reader.beginArray();
+ *     while (reader.hasNext()) {
+ *         reader.beginObject();
+ *         while (reader.hasNext()) {
+ *             if (reader.nextName().equals("price")) {
+ *                 total += reader.nextDouble();
+ *             } else {
+ *                 reader.skipValue();
+ *             }
+ *         }
+ *         reader.endObject();
+ *     }
+ *     reader.endArray();
+ * }
+ * </pre>
+ */
+public final class JsonReader implements Closeable {
+
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	// a name has been read but not its value
+	private static final int DANGLING_NAME = 3;
+	private static final int NONEMPTY_OBJECT = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	private final Parser parser;
+	private final Closeable in;
+	private int[] scopes = new int[32];
+	private int depth;
+	private JsonToken peeked;
+
+	/**
+	 * Creates a reader over characters.
+	 *
+	 * @param in The input.
+	 */
+	public JsonReader(@NotNull Reader in) throws IOException {
+		this(new ReaderParser().setup(Objects.requireNonNull(in)), in);
+	}
+
+	/**
+	 * Creates a reader over a UTF-8 stream.
+	 *
+	 * @param in The input.
+	 */
+	public JsonReader(@NotNull InputStream in) throws IOException {
+		this(new Utf8Parser().setup(Objects.requireNonNull(in)), in);
+	}
+
+	/**
+	 * Creates a reader over a stream in the specified charset.
+	 *
+	 * @param in      The input.
+	 * @param charset The charset.
+	 */
+	public JsonReader(@NotNull InputStream in, @NotNull Charset charset) throws IOException {
+		this(StandardCharsets.UTF_8.equals(charset) ? new Utf8Parser().setup(Objects.requireNonNull(in))
+				: new ReaderParser().setup(new InputStreamReader(Objects.requireNonNull(in), charset)), in);
+	}
+
+	/**
+	 * Creates a reader over UTF-8 bytes.
+	 *
+	 * @param in The input.
+	 */
+	public JsonReader(byte @NotNull [] in) {
+		this(new Utf8Parser().setup(in, 0, in.length), null);
+	}
+
+	/**
+	 * Creates a reader over the remaining UTF-8 bytes of a buffer. The position
+	 * of the buffer is left untouched.
+	 *
+	 * @param in The input.
+	 */
+	public JsonReader(@NotNull ByteBuffer in) throws IOException {
+		this(new Utf8Parser().setup(Objects.requireNonNull(in)), null);
+	}
+
+	JsonReader(Parser parser, Closeable in) {
+		this.parser = parser;
+		this.in = in;
+		scopes[depth++] = EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Gets the kind of the next token without consuming it.
+	 *
+	 * @return The token.
+	 */
+	public @NotNull JsonToken peek() throws IOException {
+		if (peeked != null) {
+			return peeked;
+		}
+
+		parser.skipWhitespace();
+
+		switch (scopes[depth - 1]) {
+		case EMPTY_DOCUMENT:
+			scopes[depth - 1] = NONEMPTY_DOCUMENT;
+			return peeked = peekValue();
+		case NONEMPTY_DOCUMENT:
+			if (parser.character() != -1) {
+				throw new JsonParseException("Found trailing non-whitespace characters");
+			}
+			return peeked = JsonToken.END_DOCUMENT;
+		case NONEMPTY_OBJECT:
+			if (parser.character() == '}') {
+				return peeked = JsonToken.END_OBJECT;
+			}
+			skipComma();
+			return peeked = peekName();
+		case EMPTY_OBJECT:
+			if (parser.character() == '}') {
+				return peeked = JsonToken.END_OBJECT;
+			}
+			return peeked = peekName();
+		case DANGLING_NAME:
+			parser.assertCharacter(':');
+			parser.read();
+			parser.skipWhitespace();
+			scopes[depth - 1] = NONEMPTY_OBJECT;
+			return peeked = peekValue();
+		case NONEMPTY_ARRAY:
+			if (parser.character() == ']') {
+				return peeked = JsonToken.END_ARRAY;
+			}
+			skipComma();
+			return peeked = peekValue();
+		case EMPTY_ARRAY:
+			if (parser.character() == ']') {
+				return peeked = JsonToken.END_ARRAY;
+			}
+			scopes[depth - 1] = NONEMPTY_ARRAY;
+			return peeked = peekValue();
+		default:
+			throw new IllegalStateException("Reader is closed");
+		}
+	}
+
+	private void skipComma() throws IOException {
+		parser.assertCharacter(',');
+		parser.read();
+		parser.skipWhitespace();
+	}
+
+	private JsonToken peekName() throws JsonParseException {
+		parser.assertCharacter('"');
+		scopes[depth - 1] = DANGLING_NAME;
+		return JsonToken.NAME;
+	}
+
+	private JsonToken peekValue() throws JsonParseException {
+		parser.assertNoEOF("a value");
+
+		int character = parser.character();
+
+		switch (character) {
+		case '{':
+			return JsonToken.BEGIN_OBJECT;
+		case '[':
+			return JsonToken.BEGIN_ARRAY;
+		case '"':
+			return JsonToken.STRING;
+		case 't':
+		case 'f':
+			return JsonToken.BOOLEAN;
+		case 'n':
+			return JsonToken.NULL;
+		}
+
+		if (character == '-' || parser.isDigit()) {
+			return JsonToken.NUMBER;
+		}
+
+		throw new JsonParseException("Expected a JSON value but got '" + (char) character + "'");
+	}
+
+	/**
+	 * Gets whether the current object or array has another element.
+	 *
+	 * @return <code>true</code> if the next token is not the end of an object,
+	 *         array or document.
+	 */
+	public boolean hasNext() throws IOException {
+		JsonToken token = peek();
+		return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+	}
+
+	public void beginObject() throws IOException {
+		expect(JsonToken.BEGIN_OBJECT);
+		parser.read();
+		push(EMPTY_OBJECT);
+	}
+
+	public void endObject() throws IOException {
+		expect(JsonToken.END_OBJECT);
+		parser.read();
+		depth--;
+	}
+
+	public void beginArray() throws IOException {
+		expect(JsonToken.BEGIN_ARRAY);
+		parser.read();
+		push(EMPTY_ARRAY);
+	}
+
+	public void endArray() throws IOException {
+		expect(JsonToken.END_ARRAY);
+		parser.read();
+		depth--;
+	}
+
+	/**
+	 * Consumes the next key within an object.
+	 *
+	 * @return The key.
+	 */
+	public @NotNull String nextName() throws IOException {
+		expect(JsonToken.NAME);
+		String result = parser.readKey();
+		parser.read();
+		return result;
+	}
+
+	public @NotNull String nextString() throws IOException {
+		expect(JsonToken.STRING);
+		String result = parser.readJString();
+		parser.read();
+		return result;
+	}
+
+	public double nextDouble() throws IOException {
+		expect(JsonToken.NUMBER);
+		return parser.readDouble();
+	}
+
+	/**
+	 * Consumes the next number, which must be an integer within the range of a
+	 * long.
+	 *
+	 * @return The number.
+	 */
+	public long nextLong() throws IOException {
+		expect(JsonToken.NUMBER);
+		JsonNumber number = parser.readNumber();
+
+		try {
+			return number.getLongValueExact();
+		} catch (ArithmeticException error) {
+			throw new JsonParseException("Expected a long but got " + number);
+		}
+	}
+
+	/**
+	 * Consumes the next number, which must be an integer within the range of an
+	 * int.
+	 *
+	 * @return The number.
+	 */
+	public int nextInt() throws IOException {
+		long value = nextLong();
+		int result = (int) value;
+
+		if (result != value) {
+			throw new JsonParseException("Expected an int but got " + value);
+		}
+
+		return result;
+	}
+
+	public boolean nextBoolean() throws IOException {
+		expect(JsonToken.BOOLEAN);
+
+		JsonValue result = parser.readBoolean();
+
+		if (result == null) {
+			throw new JsonParseException("Expected a boolean");
+		}
+
+		parser.read();
+		return result.getBooleanValue();
+	}
+
+	public void nextNull() throws IOException {
+		expect(JsonToken.NULL);
+
+		if (!parser.readNull()) {
+			throw new JsonParseException("Expected null");
+		}
+
+		parser.read();
+	}
+
+	/**
+	 * Consumes the next value, including everything nested within it, and
+	 * builds it into a tree.
+	 *
+	 * @return The value.
+	 */
+	public @NotNull JsonValue nextValue() throws IOException {
+		JsonToken token = peek();
+
+		switch (token) {
+		case NAME:
+		case END_OBJECT:
+		case END_ARRAY:
+		case END_DOCUMENT:
+			throw new IllegalStateException("Expected a value but was " + token);
+		default:
+			peeked = null;
+			return parser.readValueFully();
+		}
+	}
+
+	/**
+	 * Skips the next value, including everything nested within it. If the next
+	 * token is a key, both the key and its value are skipped.
+	 */
+	public void skipValue() throws IOException {
+		if (peek() == JsonToken.NAME) {
+			expect(JsonToken.NAME);
+			parser.skipString();
+			parser.read();
+		}
+
+		switch (peek()) {
+		case END_OBJECT:
+			endObject();
+			break;
+		case END_ARRAY:
+			endArray();
+			break;
+		case END_DOCUMENT:
+			throw new IllegalStateException("Expected a value but was END_DOCUMENT");
+		default:
+			// scanned over rather than built
+			peeked = null;
+			parser.skipValue();
+			break;
+		}
+	}
+
+	/**
+	 * Gets the nesting depth, <code>0</code> being outside of any object or
+	 * array.
+	 *
+	 * @return The depth.
+	 */
+	public int getDepth() {
+		return depth - 1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		peeked = null;
+		depth = 1;
+		scopes[0] = -1;
+		parser.release();
+
+		if (in != null) {
+			in.close();
+		}
+	}
+
+	private void expect(JsonToken expected) throws IOException {
+		JsonToken token = peek();
+
+		if (token != expected) {
+			throw new IllegalStateException("Expected " + expected + " but was " + token);
+		}
+
+		peeked = null;
+	}
+
+	private void push(int scope) {
+		if (depth == scopes.length) {
+			scopes = Arrays.copyOf(scopes, depth << 1);
+		}
+
+		scopes[depth++] = scope;
+	}
+
+}
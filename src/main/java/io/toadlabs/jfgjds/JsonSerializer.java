@@ -2,18 +2,16 @@ package io.toadlabs.jfgjds;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
-import java.util.Map;
 import java.util.Objects;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import io.toadlabs.jfgjds.data.JsonArray;
-import io.toadlabs.jfgjds.data.JsonBoolean;
-import io.toadlabs.jfgjds.data.JsonNumber;
-import io.toadlabs.jfgjds.data.JsonObject;
-import io.toadlabs.jfgjds.data.JsonString;
 import io.toadlabs.jfgjds.data.JsonValue;
 
 public final class JsonSerializer {
@@ -24,129 +22,160 @@ public final class JsonSerializer {
 
 	public static void write(@NotNull JsonValue value, @NotNull OutputStream out, @NotNull String charset)
 			throws IOException {
-		out.write(toString(value).getBytes(Charset.forName(charset)));
+		write(value, out, Charset.forName(charset));
 	}
 
 	public static void write(@NotNull JsonValue value, @NotNull OutputStream out, @NotNull Charset charset)
 			throws IOException {
-		out.write(toString(value).getBytes(Objects.requireNonNull(charset)));
+		write(value, JsonWriter.of(out, charset));
+	}
+
+	/**
+	 * Writes a value to a stream in UTF-8, encoding straight into a pooled
+	 * buffer.
+	 *
+	 * @param value The value.
+	 * @param out   The stream.
+	 */
+	public static void write(@NotNull JsonValue value, @NotNull OutputStream out) throws IOException {
+		write(value, JsonWriter.of(out));
+	}
+
+	/**
+	 * Writes a value to a channel in UTF-8, encoding straight into a pooled
+	 * buffer.
+	 *
+	 * @param value The value.
+	 * @param out   The channel.
+	 */
+	public static void write(@NotNull JsonValue value, @NotNull WritableByteChannel out) throws IOException {
+		write(value, JsonWriter.of(out));
 	}
 
 	public static void write(@NotNull JsonValue value, @NotNull Writer writer) throws IOException {
-		writer.write(toString(value).toCharArray());
-		writer.flush();
+		write(value, JsonWriter.of(writer));
 	}
 
 	public static @NotNull String toString(@NotNull JsonValue value) {
-		StringBuilder out = new StringBuilder();
-		write(Objects.requireNonNull(value), out);
-		return out.toString();
-	}
-
-	private static void write(JsonValue value, StringBuilder out) {
-		if (value.isObject()) {
-			write(value.asObject(), out);
-		} else if (value.isArray()) {
-			write(value.asArray(), out);
-		} else if (value.isString()) {
-			write(value.asString(), out);
-		} else if (value.isNumber()) {
-			write(value.asNumber(), out);
-		} else if (value.isBoolean()) {
-			write(value.asBoolean(), out);
-		} else if (value.isNull()) {
-			writeNull(out);
+		Objects.requireNonNull(value);
+		BufferPool pool = BufferPool.getDefault();
+		StringBuilder out = pool.takeBuilder();
+
+		try {
+			write(value, new CharJsonWriter(out));
+			return out.toString();
+		} catch (IOException error) {
+			// a StringBuilder cannot fail
+			throw new UncheckedIOException(error);
+		} finally {
+			pool.giveBuilder(out);
 		}
 	}
 
-	private static void write(JsonObject obj, StringBuilder out) {
-		out.append('{');
-		boolean comma = false;
-		for (Map.Entry<String, JsonValue> entry : obj.entries()) {
-			if (comma) {
-				out.append(',');
-			}
-			write(entry.getKey(), out);
-			out.append(':');
-			write(entry.getValue(), out);
-			comma = true;
-		}
-		out.append('}');
-	}
-
-	private static void write(JsonArray array, StringBuilder out) {
-		out.append('[');
-		boolean comma = false;
-		for (JsonValue entry : array) {
-			if (comma) {
-				out.append(',');
-			}
-			write(entry, out);
-			comma = true;
+	/**
+	 * Serializes a value to UTF-8.
+	 *
+	 * @param value The value.
+	 * @return The bytes.
+	 */
+	public static byte @NotNull [] toUtf8Bytes(@NotNull JsonValue value) {
+		Utf8JsonWriter writer = new Utf8JsonWriter();
+
+		try {
+			writer.value(Objects.requireNonNull(value));
+			return writer.toByteArray();
+		} catch (IOException error) {
+			// there is no sink to fail
+			throw new UncheckedIOException(error);
+		} finally {
+			writer.recycle();
 		}
-		out.append(']');
-	}
-
-	private static void write(JsonString str, StringBuilder out) {
-		write(str.getValue(), out);
-	}
-
-	private static void write(String str, StringBuilder out) {
-		out.append('"');
-
-		for (char character : str.toCharArray()) {
-			switch (character) {
-			case '\\':
-			case '"':
-				out.append('\\');
-				break;
-			case '\b':
-				out.append("\\b");
-				continue;
-			case '\f':
-				out.append("\\f");
-				continue;
-			case '\n':
-				out.append("\\n");
-				continue;
-			case '\r':
-				out.append("\\r");
-				continue;
-			case '\t':
-				out.append("\\t");
-				continue;
-			}
-			out.append(character);
+	}
+
+	/**
+	 * Serializes a value to UTF-8, in a buffer which is ready to be written to a
+	 * channel - possibly along with others, by a gathering write.
+	 *
+	 * @param value  The value.
+	 * @param direct <code>true</code> to allocate a direct buffer.
+	 * @return The buffer, positioned at the start of the document.
+	 */
+	public static @NotNull ByteBuffer toByteBuffer(@NotNull JsonValue value, boolean direct) {
+		Utf8JsonWriter writer = new Utf8JsonWriter();
+
+		try {
+			writer.value(Objects.requireNonNull(value));
+			return writer.toByteBuffer(direct);
+		} catch (IOException error) {
+			// there is no sink to fail
+			throw new UncheckedIOException(error);
+		} finally {
+			writer.recycle();
 		}
+	}
 
-		out.append('"');
+	/**
+	 * Writes any object to a stream in UTF-8, converted by the same rules as
+	 * {@link JsonValue#coerce(Object)}. Unlike coercing it first, maps, lists
+	 * and arrays are streamed as they are, rather than copied into a tree.
+	 *
+	 * @param value The object.
+	 * @param out   The stream.
+	 */
+	public static void writeObject(@Nullable Object value, @NotNull OutputStream out) throws IOException {
+		writeObject(value, JsonWriter.of(out));
 	}
 
-	private static void write(JsonNumber number, StringBuilder out) {
-		double value = number.getValue();
+	public static void writeObject(@Nullable Object value, @NotNull OutputStream out, @NotNull Charset charset)
+			throws IOException {
+		writeObject(value, JsonWriter.of(out, charset));
+	}
 
-		if (Double.isInfinite(value)) {
-			if (value == Double.NEGATIVE_INFINITY) {
-				out.append('-');
-			}
-			// just to be sure that it's defintely Infinity
-			out.append("1E99999");
-			return;
-		} else if (value != value) {
-			// cannot be represented
-			writeNull(out);
-			return;
-		}
+	public static void writeObject(@Nullable Object value, @NotNull WritableByteChannel out) throws IOException {
+		writeObject(value, JsonWriter.of(out));
+	}
+
+	public static void writeObject(@Nullable Object value, @NotNull Writer writer) throws IOException {
+		writeObject(value, JsonWriter.of(writer));
+	}
 
-		out.append(value);
+	/**
+	 * Serializes any object to a string, converted by the same rules as
+	 * {@link JsonValue#coerce(Object)}.
+	 *
+	 * @param value The object.
+	 * @return The JSON.
+	 * @see #writeObject(Object, OutputStream)
+	 */
+	public static @NotNull String objectToString(@Nullable Object value) {
+		BufferPool pool = BufferPool.getDefault();
+		StringBuilder out = pool.takeBuilder();
+
+		try {
+			writeObject(value, new CharJsonWriter(out));
+			return out.toString();
+		} catch (IOException error) {
+			// a StringBuilder cannot fail
+			throw new UncheckedIOException(error);
+		} finally {
+			pool.giveBuilder(out);
+		}
 	}
 
-	private static void write(JsonBoolean bool, StringBuilder out) {
-		out.append(bool.getValue());
+	private static void writeObject(Object value, JsonWriter writer) throws IOException {
+		try {
+			writer.coercedValue(value);
+		} finally {
+			writer.finish();
+		}
 	}
 
-	private static void writeNull(StringBuilder out) {
-		out.append("null");
+	private static void write(JsonValue value, JsonWriter writer) throws IOException {
+		try {
+			writer.value(Objects.requireNonNull(value));
+		} finally {
+			writer.finish();
+		}
 	}
 
 }
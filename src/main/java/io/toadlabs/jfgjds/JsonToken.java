@@ -0,0 +1,25 @@
+package io.toadlabs.jfgjds;
+
+/**
+ * The kinds of token a {@link JsonReader} can be positioned on.
+ */
+public enum JsonToken {
+
+	BEGIN_OBJECT,
+	END_OBJECT,
+	BEGIN_ARRAY,
+	END_ARRAY,
+	/**
+	 * A key within an object.
+	 */
+	NAME,
+	STRING,
+	NUMBER,
+	BOOLEAN,
+	NULL,
+	/**
+	 * The end of the input, after the top-level value.
+	 */
+	END_DOCUMENT
+
+}
@@ -0,0 +1,566 @@
+package io.toadlabs.jfgjds;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import io.toadlabs.jfgjds.data.JsonArray;
+import io.toadlabs.jfgjds.data.JsonNumber;
+import io.toadlabs.jfgjds.data.JsonObject;
+import io.toadlabs.jfgjds.data.JsonValue;
+import io.toadlabs.jfgjds.data.SerializedForm;
+
+/**
+ * An incremental serializer, which streams a document to its sink through a
+ * small fixed buffer rather than building it in memory.
+ *
+ * <pre>
+ * try (JsonWriter writer = JsonWriter.of(out)) {
+ *     writer.beginObject();
+ *     writer.name("name").value("Jason");
+ *     writer.name("tags").beginArray().value("a").value("b").endArray();
+ *     writer.endObject();
+ * }
+ * </pre>
+ */
+public abstract class JsonWriter implements Closeable, Flushable {
+
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	// a name has been written but not its value
+	private static final int DANGLING_NAME = 3;
+	private static final int NONEMPTY_OBJECT = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	// escape sequences for ASCII characters, null if none is needed
+	static final String[] ESCAPES = new String[128];
+
+	static {
+		for (int character = 0; character < 0x20; character++) {
+			ESCAPES[character] = String.format("\\u%04x", character);
+		}
+
+		ESCAPES['"'] = "\\\"";
+		ESCAPES['\\'] = "\\\\";
+		ESCAPES['\b'] = "\\b";
+		ESCAPES['\f'] = "\\f";
+		ESCAPES['\n'] = "\\n";
+		ESCAPES['\r'] = "\\r";
+		ESCAPES['\t'] = "\\t";
+	}
+
+	private int[] scopes = new int[32];
+	private int depth;
+	// set when something written can't be cached, so neither can its container
+	private boolean uncacheable;
+
+	JsonWriter() {
+		scopes[depth++] = EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Creates a writer over characters.
+	 *
+	 * @param out The sink.
+	 * @return The writer.
+	 */
+	public static @NotNull JsonWriter of(@NotNull Writer out) {
+		return new CharJsonWriter(Objects.requireNonNull(out));
+	}
+
+	/**
+	 * Creates a writer over a UTF-8 stream, which encodes straight into its
+	 * buffer.
+	 *
+	 * @param out The sink.
+	 * @return The writer.
+	 */
+	public static @NotNull JsonWriter of(@NotNull OutputStream out) {
+		return new Utf8JsonWriter(Objects.requireNonNull(out));
+	}
+
+	/**
+	 * Creates a writer over a channel in UTF-8, which encodes straight into its
+	 * buffer.
+	 *
+	 * @param out The sink.
+	 * @return The writer.
+	 */
+	public static @NotNull JsonWriter of(@NotNull WritableByteChannel out) {
+		return new Utf8JsonWriter(Objects.requireNonNull(out));
+	}
+
+	/**
+	 * Creates a writer over a stream in the specified charset.
+	 *
+	 * @param out     The sink.
+	 * @param charset The charset.
+	 * @return The writer.
+	 */
+	public static @NotNull JsonWriter of(@NotNull OutputStream out, @NotNull Charset charset) {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			return of(out);
+		}
+
+		return new CharJsonWriter(Objects.requireNonNull(out), charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE));
+	}
+
+	public @NotNull JsonWriter beginObject() throws IOException {
+		beforeValue();
+		writeRaw('{');
+		push(EMPTY_OBJECT);
+		return this;
+	}
+
+	public @NotNull JsonWriter endObject() throws IOException {
+		int scope = scopes[depth - 1];
+
+		if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+			throw new IllegalStateException("Not within an object, or a name is missing its value");
+		}
+
+		depth--;
+		writeRaw('}');
+		return this;
+	}
+
+	public @NotNull JsonWriter beginArray() throws IOException {
+		beforeValue();
+		writeRaw('[');
+		push(EMPTY_ARRAY);
+		return this;
+	}
+
+	public @NotNull JsonWriter endArray() throws IOException {
+		int scope = scopes[depth - 1];
+
+		if (scope != EMPTY_ARRAY && scope != NONEMPTY_ARRAY) {
+			throw new IllegalStateException("Not within an array");
+		}
+
+		depth--;
+		writeRaw(']');
+		return this;
+	}
+
+	/**
+	 * Writes a key within an object. The next call must write its value.
+	 *
+	 * @param name The key.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonWriter name(@NotNull String name) throws IOException {
+		Objects.requireNonNull(name);
+		beforeName();
+		writeString(name);
+		writeRaw(':');
+		return this;
+	}
+
+	/**
+	 * Writes a key which has already been encoded. The next call must write its
+	 * value.
+	 *
+	 * @param name The key.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonWriter name(@NotNull JsonName name) throws IOException {
+		Objects.requireNonNull(name);
+		beforeName();
+		writeName(name);
+		return this;
+	}
+
+	private void beforeName() throws IOException {
+		switch (scopes[depth - 1]) {
+		case NONEMPTY_OBJECT:
+			writeRaw(',');
+			break;
+		case EMPTY_OBJECT:
+			break;
+		default:
+			throw new IllegalStateException("Not within an object, or a name is missing its value");
+		}
+
+		scopes[depth - 1] = DANGLING_NAME;
+	}
+
+	/**
+	 * Writes a string, or null.
+	 *
+	 * @param value The string.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonWriter value(@Nullable String value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+
+		beforeValue();
+		writeString(value);
+		return this;
+	}
+
+	/**
+	 * Writes a number. Infinity is written as a number which overflows, and NaN
+	 * as null, since neither can be represented.
+	 *
+	 * @param value The number.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonWriter value(double value) throws IOException {
+		beforeValue();
+		writeNumber(value);
+		return this;
+	}
+
+	private void writeNumber(double value) throws IOException {
+		if (Double.isInfinite(value)) {
+			// just to be sure that it's defintely Infinity
+			writeRaw(value < 0 ? "-1E99999" : "1E99999");
+		} else if (value != value) {
+			// cannot be represented
+			writeRaw("null");
+		} else {
+			writeDouble(value);
+		}
+	}
+
+	public @NotNull JsonWriter value(long value) throws IOException {
+		beforeValue();
+		writeLong(value);
+		return this;
+	}
+
+	/**
+	 * Writes a number exactly, or null.
+	 *
+	 * @param value The number.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonWriter value(@Nullable BigDecimal value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+
+		beforeValue();
+		writeRaw(value.toString());
+		return this;
+	}
+
+	public @NotNull JsonWriter value(boolean value) throws IOException {
+		beforeValue();
+		writeRaw(value ? "true" : "false");
+		return this;
+	}
+
+	public @NotNull JsonWriter nullValue() throws IOException {
+		beforeValue();
+		writeRaw("null");
+		return this;
+	}
+
+	/**
+	 * Writes a value, including everything nested within it.
+	 *
+	 * @param value The value.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonWriter value(@NotNull JsonValue value) throws IOException {
+		if (value.isObject()) {
+			writeObject(value.asObject());
+		} else if (value.isArray()) {
+			writeArray(value.asArray());
+		} else if (value.isString()) {
+			value(value.getStringValue());
+		} else if (value.isNumber()) {
+			writeNumber(value.asNumber());
+		} else if (value.isBoolean()) {
+			value(value.getBooleanValue());
+		} else if (value.isNull()) {
+			nullValue();
+		}
+
+		return this;
+	}
+
+	/**
+	 * Writes any object, converted by the same rules as
+	 * {@link JsonValue#coerce(Object)} - but streamed as it goes, so maps, lists
+	 * and arrays are never copied into a tree.
+	 *
+	 * @param value The object.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonWriter coercedValue(@Nullable Object value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+
+		JsonAdapters.get(value.getClass()).write(this, value);
+		return this;
+	}
+
+	private void writeObject(JsonObject obj) throws IOException {
+		SerializedForm form = obj.getSerializedForm();
+
+		if (form != null) {
+			writeSerialized(obj, form);
+			return;
+		}
+
+		writeObject(obj, null);
+	}
+
+	private void writeObject(JsonObject obj, @Nullable SerializedForm form) throws IOException {
+		beginObject();
+		for (Map.Entry<String, JsonValue> entry : obj.entries()) {
+			JsonValue value = entry.getValue();
+
+			if (form != null && !form.adopt(value)) {
+				uncacheable = true;
+			}
+
+			name(entry.getKey());
+			value(value);
+		}
+		endObject();
+	}
+
+	/**
+	 * Writes an object or array from its cached form, encoding and caching it
+	 * first if needed.
+	 */
+	private void writeSerialized(JsonValue value, SerializedForm form) throws IOException {
+		byte[] bytes = form.get();
+
+		if (bytes == null) {
+			Utf8JsonWriter capture = new Utf8JsonWriter();
+			JsonWriter writer = capture;
+
+			try {
+				if (value.isObject()) {
+					writer.writeObject(value.asObject(), form);
+				} else {
+					writer.writeArray(value.asArray(), form);
+				}
+
+				bytes = capture.toByteArray();
+			} finally {
+				capture.recycle();
+			}
+
+			if (writer.uncacheable) {
+				// so neither is anything around it
+				uncacheable = true;
+			} else {
+				form.set(bytes);
+			}
+		}
+
+		beforeValue();
+		writeUtf8(bytes);
+	}
+
+	private void writeNumber(JsonNumber number) throws IOException {
+		if (number.isLongBacked()) {
+			value(number.getLongValue());
+		} else if (number.isDoubleBacked()) {
+			value(number.getDoubleValue());
+		} else {
+			// passed through as it was parsed
+			beforeValue();
+			writeRaw(number.getLexeme());
+		}
+	}
+
+	private void writeArray(JsonArray array) throws IOException {
+		SerializedForm form = array.getSerializedForm();
+
+		if (form != null) {
+			writeSerialized(array, form);
+			return;
+		}
+
+		writeArray(array, null);
+	}
+
+	private void writeArray(JsonArray array, @Nullable SerializedForm form) throws IOException {
+		long[] longs = array.getLongStorage();
+		double[] doubles = array.getDoubleStorage();
+
+		beginArray();
+
+		if (longs != null || doubles != null) {
+			// numbers don't need the checks between values
+			int size = array.size();
+
+			if (size > 0) {
+				scopes[depth - 1] = NONEMPTY_ARRAY;
+			}
+
+			for (int index = 0; index < size; index++) {
+				if (index != 0) {
+					writeRaw(',');
+				}
+
+				if (longs != null) {
+					writeLong(longs[index]);
+				} else {
+					writeNumber(doubles[index]);
+				}
+			}
+		} else {
+			for (JsonValue entry : array) {
+				if (form != null && !form.adopt(entry)) {
+					uncacheable = true;
+				}
+
+				value(entry);
+			}
+		}
+
+		endArray();
+	}
+
+	/**
+	 * Writes everything buffered to the sink, and flushes the sink.
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer(false);
+		flushSink();
+	}
+
+	/**
+	 * Flushes, and closes the sink.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			closeSink();
+		}
+	}
+
+	/**
+	 * Writes everything buffered and flushes the sink, then gives the buffers
+	 * back to the pool. The sink is left open, but the writer can no longer be
+	 * used.
+	 */
+	void finish() throws IOException {
+		try {
+			flushBuffer(true);
+			flushSink();
+		} finally {
+			recycle();
+		}
+	}
+
+	private void beforeValue() throws IOException {
+		switch (scopes[depth - 1]) {
+		case EMPTY_DOCUMENT:
+			scopes[depth - 1] = NONEMPTY_DOCUMENT;
+			break;
+		case NONEMPTY_DOCUMENT:
+			throw new IllegalStateException("JSON must have only one top-level value");
+		case DANGLING_NAME:
+			scopes[depth - 1] = NONEMPTY_OBJECT;
+			break;
+		case EMPTY_ARRAY:
+			scopes[depth - 1] = NONEMPTY_ARRAY;
+			break;
+		case NONEMPTY_ARRAY:
+			writeRaw(',');
+			break;
+		default:
+			throw new IllegalStateException("Expected a name");
+		}
+	}
+
+	private void push(int scope) {
+		if (depth == scopes.length) {
+			scopes = Arrays.copyOf(scopes, depth << 1);
+		}
+
+		scopes[depth++] = scope;
+	}
+
+	/**
+	 * Writes a character which needs no escaping or encoding.
+	 *
+	 * @param character The ASCII character.
+	 */
+	abstract void writeRaw(char character) throws IOException;
+
+	/**
+	 * Writes a string which needs no escaping or encoding.
+	 *
+	 * @param string The ASCII string.
+	 */
+	abstract void writeRaw(String string) throws IOException;
+
+	/**
+	 * Writes a quoted and escaped string.
+	 *
+	 * @param string The string.
+	 */
+	abstract void writeString(String string) throws IOException;
+
+	/**
+	 * Writes a finite number, as the shortest decimal which reads back the same.
+	 *
+	 * @param value The number.
+	 */
+	abstract void writeDouble(double value) throws IOException;
+
+	abstract void writeLong(long value) throws IOException;
+
+	/**
+	 * Writes a complete value which is already encoded.
+	 *
+	 * @param bytes The value in UTF-8.
+	 */
+	abstract void writeUtf8(byte[] bytes) throws IOException;
+
+	/**
+	 * Writes an encoded key, along with its colon.
+	 *
+	 * @param name The key.
+	 */
+	abstract void writeName(JsonName name) throws IOException;
+
+	/**
+	 * Writes everything buffered to the sink.
+	 *
+	 * @param end <code>true</code> if nothing more will be written.
+	 */
+	abstract void flushBuffer(boolean end) throws IOException;
+
+	abstract void flushSink() throws IOException;
+
+	abstract void closeSink() throws IOException;
+
+	/**
+	 * Gives any buffers back to the pool.
+	 */
+	abstract void recycle();
+
+}
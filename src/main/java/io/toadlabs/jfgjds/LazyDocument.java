@@ -0,0 +1,411 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import io.toadlabs.jfgjds.data.JsonArray;
+import io.toadlabs.jfgjds.data.JsonBoolean;
+import io.toadlabs.jfgjds.data.JsonNull;
+import io.toadlabs.jfgjds.data.JsonObject;
+import io.toadlabs.jfgjds.data.JsonString;
+import io.toadlabs.jfgjds.data.JsonValue;
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * A UTF-8 document which is only decoded as it is accessed. A single pass
+ * validates the whole document and records the offset of every structural
+ * character - brackets, colons, commas and opening quotes - as a token. Objects
+ * and arrays are then filled in from the tokens the first time they are
+ * accessed, creating lazy containers for anything nested.
+ */
+final class LazyDocument {
+
+	// Only used to decode single strings and numbers, so it can never be re-entered.
+	private static final ThreadLocal<Utf8Parser> PARSER = new ThreadLocal<Utf8Parser>() {
+
+		@Override
+		protected Utf8Parser initialValue() {
+			Utf8Parser parser = new Utf8Parser();
+			parser.kept = true;
+			return parser;
+		}
+
+	};
+
+	private static final int VALUE = 0;
+	// directly after '{', so the object may be empty
+	private static final int FIRST_KEY = 1;
+	private static final int KEY = 2;
+	// directly after '[', so the array may be empty
+	private static final int FIRST_ELEMENT = 3;
+	private static final int AFTER_VALUE = 4;
+
+	private final byte[] in;
+	private final int end;
+	// the byte offset of each token
+	private int[] positions;
+	// for each opening bracket, the token index of the matching closing bracket
+	private int[] matches;
+	private int count;
+
+	private LazyDocument(byte[] in, int end) {
+		this.in = in;
+		this.end = end;
+		positions = new int[16];
+		matches = new int[16];
+	}
+
+	static JsonValue read(byte[] in, int offset, int length) throws JsonParseException {
+		LazyDocument document = new LazyDocument(in, offset + length);
+		document.index(offset);
+		return document.value(document.skipWhitespace(offset), 0);
+	}
+
+	private void index(int pos) throws JsonParseException {
+		int[] stack = new int[32];
+		int depth = 0;
+		int state = VALUE;
+
+		while (true) {
+			pos = skipWhitespace(pos);
+			int character = character(pos);
+
+			switch (state) {
+			case FIRST_KEY:
+				if (character == '}') {
+					pos = close(stack[--depth], pos);
+					state = AFTER_VALUE;
+					continue;
+				}
+				// fall through
+			case KEY:
+				expect('"', pos);
+				addToken(pos);
+				pos = skipWhitespace(skipString(pos));
+				expect(':', pos);
+				addToken(pos++);
+				state = VALUE;
+				continue;
+			case FIRST_ELEMENT:
+				if (character == ']') {
+					pos = close(stack[--depth], pos);
+					state = AFTER_VALUE;
+					continue;
+				}
+				// fall through
+			case VALUE:
+				switch (character) {
+				case '{':
+				case '[':
+					if (depth == stack.length) {
+						stack = Arrays.copyOf(stack, depth << 1);
+					}
+					stack[depth++] = count;
+					addToken(pos++);
+					state = character == '{' ? FIRST_KEY : FIRST_ELEMENT;
+					continue;
+				case '"':
+					addToken(pos);
+					pos = skipString(pos);
+					break;
+				case 't':
+					pos = skipLiteral("true", pos);
+					break;
+				case 'f':
+					pos = skipLiteral("false", pos);
+					break;
+				case 'n':
+					pos = skipLiteral("null", pos);
+					break;
+				case -1:
+					throw new JsonParseException("Expected a value but got EOF");
+				default:
+					pos = skipNumber(pos);
+					break;
+				}
+				state = AFTER_VALUE;
+				continue;
+			default:
+				if (depth == 0) {
+					if (character != -1) {
+						throw new JsonParseException("Found trailing non-whitespace characters");
+					}
+					return;
+				}
+
+				boolean object = in[positions[stack[depth - 1]]] == '{';
+
+				if (character == ',') {
+					addToken(pos++);
+					state = object ? KEY : VALUE;
+				} else if (character == (object ? '}' : ']')) {
+					pos = close(stack[--depth], pos);
+				} else {
+					throw unexpected(object ? "',' or '}'" : "',' or ']'", pos);
+				}
+			}
+		}
+	}
+
+	private int close(int open, int pos) {
+		matches[open] = count;
+		addToken(pos);
+		return pos + 1;
+	}
+
+	private void addToken(int pos) {
+		if (count == positions.length) {
+			positions = Arrays.copyOf(positions, count << 1);
+			matches = Arrays.copyOf(matches, count << 1);
+		}
+
+		positions[count++] = pos;
+	}
+
+	private int character(int pos) {
+		return pos < end ? in[pos] & 0xFF : -1;
+	}
+
+	private int skipWhitespace(int pos) {
+		while (pos < end) {
+			byte character = in[pos];
+
+			if (character != ' ' && character != '\n' && character != '\r' && character != '\t') {
+				break;
+			}
+
+			pos++;
+		}
+
+		return pos;
+	}
+
+	private void expect(char expected, int pos) throws JsonParseException {
+		if (character(pos) != expected) {
+			throw unexpected("'" + expected + "'", pos);
+		}
+	}
+
+	private JsonParseException unexpected(String expected, int pos) {
+		int character = character(pos);
+		return new JsonParseException(
+				"Expected " + expected + " but got " + (character != -1 ? ("'" + (char) character + "'") : "EOF"));
+	}
+
+	/**
+	 * Validates a string.
+	 *
+	 * @param pos The offset of the opening quote.
+	 * @return The offset after the closing quote.
+	 */
+	private int skipString(int pos) throws JsonParseException {
+		while (true) {
+			int character = character(++pos);
+
+			switch (character) {
+			case '"':
+				return pos + 1;
+			case -1:
+				throw new JsonParseException("Expected '\"' but got EOF");
+			case '\\':
+				int seq = character(++pos);
+
+				switch (seq) {
+				case '"':
+				case '\\':
+				case '/':
+				case 'b':
+				case 'f':
+				case 'n':
+				case 'r':
+				case 't':
+					break;
+				case 'u':
+					for (int index = 0; index < 4; index++) {
+						if (Parser.hexDigit(character(++pos)) == -1) {
+							throw new JsonParseException("Invalid hex sequence");
+						}
+					}
+					break;
+				case -1:
+					throw new JsonParseException("Expected an escape sequence but got EOF");
+				default:
+					throw new JsonParseException("Invalid escape sequence: \\" + (char) seq);
+				}
+				break;
+			default:
+				if (character < 0x20) {
+					throw new JsonParseException("Found unescaped control character within string");
+				}
+			}
+		}
+	}
+
+	private int skipLiteral(String literal, int pos) throws JsonParseException {
+		for (int index = 0; index < literal.length(); index++) {
+			if (character(pos + index) != literal.charAt(index)) {
+				throw new JsonParseException("Expected a JSON value but got '" + (char) in[pos] + "'");
+			}
+		}
+
+		return pos + literal.length();
+	}
+
+	private int skipNumber(int pos) throws JsonParseException {
+		if (character(pos) == '-') {
+			pos++;
+		}
+
+		if (character(pos) == '0') {
+			pos++;
+			if (isDigit(pos)) {
+				throw new JsonParseException("Found superfluous leading zero");
+			}
+		} else if (isDigit(pos)) {
+			pos = skipDigits(pos);
+		} else {
+			throw unexpected("a JSON value", pos);
+		}
+
+		if (character(pos) == '.') {
+			if (!isDigit(++pos)) {
+				throw new JsonParseException("Expected digits after decimal point");
+			}
+			pos = skipDigits(pos);
+		}
+
+		if (character(pos) == 'e' || character(pos) == 'E') {
+			pos++;
+			if (character(pos) == '+' || character(pos) == '-') {
+				pos++;
+			}
+			if (!isDigit(pos)) {
+				throw new JsonParseException("Expected exponent digits");
+			}
+			pos = skipDigits(pos);
+		}
+
+		return pos;
+	}
+
+	private boolean isDigit(int pos) {
+		int character = character(pos);
+		return character >= '0' && character <= '9';
+	}
+
+	private int skipDigits(int pos) {
+		while (isDigit(pos)) {
+			pos++;
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Creates the value at an offset.
+	 *
+	 * @param pos   The offset of the value.
+	 * @param token The index of the value's token, if it is an object, array or
+	 *              string.
+	 * @return The value.
+	 */
+	private JsonValue value(int pos, int token) {
+		switch (in[pos]) {
+		case '{':
+			return JsonObject.lazy(obj -> fillObject(obj, token));
+		case '[':
+			return JsonArray.lazy(array -> fillArray(array, token));
+		case '"':
+			return new JsonString(decodeString(pos, false));
+		case 't':
+			return JsonBoolean.TRUE;
+		case 'f':
+			return JsonBoolean.FALSE;
+		case 'n':
+			return JsonNull.INSTANCE;
+		default:
+			return decodeNumber(pos);
+		}
+	}
+
+	/**
+	 * Gets the index of the token after a value.
+	 *
+	 * @param pos   The offset of the value.
+	 * @param token The index of the first token at or after the value.
+	 * @return The index of the next token.
+	 */
+	private int next(int pos, int token) {
+		switch (in[pos]) {
+		case '{':
+		case '[':
+			return matches[token] + 1;
+		case '"':
+			return token + 1;
+		default:
+			// other values have no token
+			return token;
+		}
+	}
+
+	private void fillObject(JsonObject obj, int open) {
+		int token = open + 1;
+
+		while (in[positions[token]] == '"') {
+			String key = decodeString(positions[token], true);
+			int pos = skipWhitespace(positions[token + 1] + 1);
+			int valueToken = token + 2;
+			obj.put(key, value(pos, valueToken));
+			token = next(pos, valueToken);
+
+			if (in[positions[token]] == ',') {
+				token++;
+			}
+		}
+	}
+
+	private void fillArray(JsonArray array, int open) {
+		int token = open + 1;
+		int pos = skipWhitespace(positions[open] + 1);
+
+		while (in[pos] != ']') {
+			array.add(value(pos, token));
+			token = next(pos, token);
+
+			if (in[positions[token]] == ',') {
+				pos = skipWhitespace(positions[token] + 1);
+				token++;
+			} else {
+				break;
+			}
+		}
+	}
+
+	private String decodeString(int pos, boolean key) {
+		Utf8Parser parser = PARSER.get().setup(in, pos, end - pos);
+
+		try {
+			return key ? parser.readKey() : parser.readJString();
+		} catch (IOException error) {
+			// already validated
+			throw new UncheckedIOException(error);
+		} finally {
+			parser.release();
+		}
+	}
+
+	private JsonValue decodeNumber(int pos) {
+		Utf8Parser parser = PARSER.get().setup(in, pos, end - pos);
+
+		try {
+			return parser.readNumber();
+		} catch (IOException error) {
+			// already validated
+			throw new UncheckedIOException(error);
+		} finally {
+			parser.release();
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+import io.toadlabs.jfgjds.data.JsonValue;
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * Reads one value per line of a UTF-8 stream, parsing blocks of lines on an
+ * executor. Values must not span lines - JSON allows newlines as whitespace
+ * within arrays and objects, but that is what this format rules out - so the
+ * stream is cut into blocks at the last newline in each read without looking
+ * at the JSON. Blocks are handed out in the order they were read, and only a
+ * few are read ahead.
+ */
+final class LineSpliterator extends Spliterators.AbstractSpliterator<JsonValue> {
+
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private final InputStream in;
+	private final Executor executor;
+	private final int readAhead;
+	private final ArrayDeque<Future<List<JsonValue>>> pending = new ArrayDeque<>();
+	// the start of a line which continues past the last block
+	private byte[] partial = new byte[0];
+	private int line = 1;
+	private boolean eof;
+	private List<JsonValue> current;
+	private int index;
+
+	LineSpliterator(InputStream in, Executor executor, int readAhead) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		this.in = in;
+		this.executor = executor;
+		this.readAhead = readAhead;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super JsonValue> action) {
+		while (current == null || index == current.size()) {
+			try {
+				while (!eof && pending.size() < readAhead) {
+					submitBlock();
+				}
+			} catch (IOException error) {
+				close();
+				throw new UncheckedIOException(error);
+			}
+
+			Future<List<JsonValue>> next = pending.poll();
+
+			if (next == null) {
+				return false;
+			}
+
+			current = await(next);
+			index = 0;
+		}
+
+		action.accept(current.get(index++));
+		return true;
+	}
+
+	private void submitBlock() throws IOException {
+		byte[] block = Arrays.copyOf(partial, Math.max(BLOCK_SIZE, partial.length << 1));
+		int length = partial.length;
+		int end = -1;
+
+		// read until the block holds at least one whole line
+		while (end == -1) {
+			if (length == block.length) {
+				block = Arrays.copyOf(block, block.length << 1);
+			}
+
+			int count = in.read(block, length, block.length - length);
+
+			if (count == -1) {
+				eof = true;
+				end = length;
+				break;
+			}
+
+			end = lastNewline(block, length, length + count);
+			length += count;
+		}
+
+		partial = Arrays.copyOfRange(block, end, length);
+
+		if (end > 0) {
+			byte[] lines = block;
+			int linesEnd = end;
+			int firstLine = line;
+			line += countNewlines(block, end);
+			FutureTask<List<JsonValue>> task = new FutureTask<>(() -> parseBlock(lines, linesEnd, firstLine));
+			pending.add(task);
+			executor.execute(task);
+		}
+	}
+
+	private static List<JsonValue> parseBlock(byte[] block, int end, int firstLine) throws IOException {
+		List<JsonValue> result = new ArrayList<>();
+		int line = firstLine;
+		int start = 0;
+
+		while (start < end) {
+			int lineEnd = start;
+
+			while (lineEnd < end && block[lineEnd] != '\n') {
+				lineEnd++;
+			}
+
+			if (!isBlank(block, start, lineEnd)) {
+				try {
+					result.add(JsonDeserializer.read(block, start, lineEnd - start));
+				} catch (JsonParseException error) {
+					throw new JsonParseException("Line " + line + ": " + error.getMessage(), error);
+				}
+			}
+
+			start = lineEnd + 1;
+			line++;
+		}
+
+		return result;
+	}
+
+	private static int lastNewline(byte[] block, int from, int to) {
+		for (int index = to - 1; index >= from; index--) {
+			if (block[index] == '\n') {
+				return index + 1;
+			}
+		}
+
+		return -1;
+	}
+
+	private static int countNewlines(byte[] block, int end) {
+		int count = 0;
+
+		for (int index = 0; index < end; index++) {
+			if (block[index] == '\n') {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private static boolean isBlank(byte[] block, int start, int end) {
+		for (int index = start; index < end; index++) {
+			byte character = block[index];
+
+			if (character != ' ' && character != '\t' && character != '\r') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private List<JsonValue> await(Future<List<JsonValue>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException error) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new UncheckedIOException(new InterruptedIOException("Interrupted while parsing"));
+		} catch (ExecutionException error) {
+			close();
+			Throwable cause = error.getCause();
+
+			if (cause instanceof IOException) {
+				throw new UncheckedIOException((IOException) cause);
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Stops reading, and cancels any blocks which haven't been parsed yet.
+	 */
+	void close() {
+		eof = true;
+		current = null;
+
+		Future<List<JsonValue>> future;
+
+		while ((future = pending.poll()) != null) {
+			future.cancel(false);
+		}
+	}
+
+}
@@ -0,0 +1,328 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binds a plain class by its fields, or a record by its components. Everything
+ * reflective is done once here, leaving method handles which are adapted to
+ * take and give <code>Object</code>s - except for <code>int</code>,
+ * <code>long</code>, <code>double</code> and <code>boolean</code>, which are
+ * kept as they are so they aren't boxed.
+ */
+final class ObjectCodec implements JsonCodec<Object> {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	// looked up reflectively, since records came after Java 8
+	private static final Method GET_RECORD_COMPONENTS;
+	private static final Method COMPONENT_NAME;
+	private static final Method COMPONENT_TYPE;
+	private static final Method COMPONENT_ACCESSOR;
+
+	static {
+		Method components = null;
+		Method name = null;
+		Method type = null;
+		Method accessor = null;
+
+		try {
+			Class<?> component = Class.forName("java.lang.reflect.RecordComponent");
+			components = Class.class.getMethod("getRecordComponents");
+			name = component.getMethod("getName");
+			type = component.getMethod("getGenericType");
+			accessor = component.getMethod("getAccessor");
+		} catch (ReflectiveOperationException error) {
+			// no records before Java 16
+		}
+
+		GET_RECORD_COMPONENTS = components;
+		COMPONENT_NAME = name;
+		COMPONENT_TYPE = type;
+		COMPONENT_ACCESSOR = accessor;
+	}
+
+	private static final int OBJECT = 0;
+	private static final int INT = 1;
+	private static final int LONG = 2;
+	private static final int DOUBLE = 3;
+	private static final int BOOLEAN = 4;
+
+	private final Class<?> type;
+	// ()Object for a plain class, or (Object[])Object taking each component for a record
+	private final MethodHandle constructor;
+	private final boolean record;
+	private final Property[] properties;
+	private final Map<String, Property> byName = new HashMap<>();
+	// the values of record components which are missing
+	private final Object[] defaults;
+
+	private ObjectCodec(Class<?> type, MethodHandle constructor, boolean record, Property[] properties) {
+		this.type = type;
+		this.constructor = constructor;
+		this.record = record;
+		this.properties = properties;
+		defaults = new Object[properties.length];
+
+		for (Property property : properties) {
+			byName.put(property.name, property);
+
+			if (property.raw.isPrimitive()) {
+				defaults[property.index] = Array.get(Array.newInstance(property.raw, 1), 0);
+			}
+		}
+	}
+
+	/**
+	 * Builds the codec for a class.
+	 *
+	 * @param type    The class.
+	 * @param context The class, or the parameterized type of it which is being
+	 *                bound, which the type variables of fields are resolved
+	 *                against.
+	 */
+	static ObjectCodec create(Class<?> type, Type context) {
+		try {
+			Object[] components = GET_RECORD_COMPONENTS == null ? null
+					: (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+
+			return components != null ? createRecord(type, context, components) : createPlain(type, context);
+		} catch (ReflectiveOperationException | RuntimeException error) {
+			// including when the module system won't let us in
+			throw new IllegalArgumentException("Cannot bind " + type.getName() + ": " + error, error);
+		}
+	}
+
+	private static ObjectCodec createPlain(Class<?> type, Type context) throws ReflectiveOperationException {
+		if (type.isMemberClass() && !Modifier.isStatic(type.getModifiers())) {
+			throw new IllegalArgumentException("Cannot bind " + type.getName() + ", as it is an inner class");
+		}
+
+		Constructor<?> constructor;
+
+		try {
+			constructor = type.getDeclaredConstructor();
+		} catch (NoSuchMethodException error) {
+			throw new IllegalArgumentException(type.getName() + " has no constructor without arguments");
+		}
+
+		Deque<Class<?>> hierarchy = new ArrayDeque<>();
+
+		for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+			hierarchy.push(current);
+		}
+
+		// those of subclasses replace those which they hide
+		Map<String, Field> fields = new LinkedHashMap<>();
+
+		for (Class<?> current : hierarchy) {
+			for (Field field : current.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+
+				if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+					fields.put(field.getName(), field);
+				}
+			}
+		}
+
+		Property[] properties = new Property[fields.size()];
+		int index = 0;
+
+		for (Field field : fields.values()) {
+			accessible(field);
+			properties[index] = new Property(field.getName(), index, field.getType(),
+					resolve(type, context, field.getName(), field.getGenericType()), LOOKUP.unreflectGetter(field),
+					LOOKUP.unreflectSetter(field));
+			index++;
+		}
+
+		accessible(constructor);
+		return new ObjectCodec(type, LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class)),
+				false, properties);
+	}
+
+	private static ObjectCodec createRecord(Class<?> type, Type context, Object[] components)
+			throws ReflectiveOperationException {
+		Property[] properties = new Property[components.length];
+		Class<?>[] parameters = new Class<?>[components.length];
+
+		for (int index = 0; index < components.length; index++) {
+			Object component = components[index];
+			Method accessor = (Method) COMPONENT_ACCESSOR.invoke(component);
+			accessible(accessor);
+			parameters[index] = accessor.getReturnType();
+			String name = (String) COMPONENT_NAME.invoke(component);
+			properties[index] = new Property(name, index, parameters[index],
+					resolve(type, context, name, (Type) COMPONENT_TYPE.invoke(component)), LOOKUP.unreflect(accessor),
+					null);
+		}
+
+		Constructor<?> constructor = type.getDeclaredConstructor(parameters);
+		accessible(constructor);
+		return new ObjectCodec(type, LOOKUP.unreflectConstructor(constructor)
+				.asSpreader(Object[].class, components.length)
+				.asType(MethodType.methodType(Object.class, Object[].class)), true, properties);
+	}
+
+	private static Type resolve(Class<?> type, Type context, String name, Type declared) {
+		Type result = Types.resolve(declared, context);
+
+		if (Types.hasVariable(result)) {
+			// rather than guessing, which would fill it with whatever the JSON held
+			throw new IllegalArgumentException(type.getName() + "." + name + " is a " + result.getTypeName()
+					+ ", which isn't known here; bind a parameterized type or a subclass which gives it");
+		}
+
+		return result;
+	}
+
+	private static void accessible(AccessibleObject object) {
+		object.setAccessible(true);
+	}
+
+	@Override
+	public Object read(JsonReader reader) throws IOException {
+		CodecSupport.expect(reader, JsonToken.BEGIN_OBJECT);
+		reader.beginObject();
+
+		try {
+			Object result = record ? null : (Object) constructor.invokeExact();
+			Object[] values = record ? defaults.clone() : null;
+
+			while (reader.hasNext()) {
+				Property property = byName.get(reader.nextName());
+
+				if (property == null) {
+					reader.skipValue();
+				} else if (record) {
+					values[property.index] = property.reference.read(reader);
+				} else {
+					property.read(reader, result);
+				}
+			}
+
+			reader.endObject();
+			return record ? (Object) constructor.invokeExact(values) : result;
+		} catch (IOException | RuntimeException | Error error) {
+			throw error;
+		} catch (Throwable error) {
+			throw new IllegalStateException("Cannot create " + type.getName(), error);
+		}
+	}
+
+	@Override
+	public void write(JsonWriter writer, Object value) throws IOException {
+		writer.beginObject();
+
+		for (Property property : properties) {
+			writer.name(property.encoded);
+			property.write(writer, value);
+		}
+
+		writer.endObject();
+	}
+
+	private static final class Property {
+
+		final String name;
+		final JsonName encoded;
+		final int index;
+		final Class<?> raw;
+		final CodecSupport.Reference reference;
+		final int kind;
+		// (Object)T and (Object,T)void, where T is the primitive or else Object
+		final MethodHandle getter;
+		final MethodHandle setter;
+
+		Property(String name, int index, Class<?> raw, Type type, MethodHandle getter, MethodHandle setter) {
+			this.name = name;
+			encoded = JsonName.of(name);
+			this.index = index;
+			this.raw = raw;
+			reference = CodecSupport.reference(type);
+
+			if (raw == int.class) {
+				kind = INT;
+			} else if (raw == long.class) {
+				kind = LONG;
+			} else if (raw == double.class) {
+				kind = DOUBLE;
+			} else if (raw == boolean.class) {
+				kind = BOOLEAN;
+			} else {
+				kind = OBJECT;
+			}
+
+			Class<?> exact = kind == OBJECT ? Object.class : raw;
+			this.getter = getter.asType(MethodType.methodType(exact, Object.class));
+			this.setter = setter == null ? null
+					: setter.asType(MethodType.methodType(void.class, Object.class, exact));
+		}
+
+		void read(JsonReader reader, Object target) throws Throwable {
+			switch (kind) {
+			case INT:
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				setter.invokeExact(target, reader.nextInt());
+				break;
+			case LONG:
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				setter.invokeExact(target, reader.nextLong());
+				break;
+			case DOUBLE:
+				CodecSupport.expect(reader, JsonToken.NUMBER);
+				setter.invokeExact(target, reader.nextDouble());
+				break;
+			case BOOLEAN:
+				CodecSupport.expect(reader, JsonToken.BOOLEAN);
+				setter.invokeExact(target, reader.nextBoolean());
+				break;
+			default:
+				setter.invokeExact(target, reference.read(reader));
+				break;
+			}
+		}
+
+		void write(JsonWriter writer, Object source) throws IOException {
+			try {
+				switch (kind) {
+				case INT:
+					writer.value((long) (int) getter.invokeExact(source));
+					break;
+				case LONG:
+					writer.value((long) getter.invokeExact(source));
+					break;
+				case DOUBLE:
+					writer.value((double) getter.invokeExact(source));
+					break;
+				case BOOLEAN:
+					writer.value((boolean) getter.invokeExact(source));
+					break;
+				default:
+					reference.write(writer, (Object) getter.invokeExact(source));
+					break;
+				}
+			} catch (IOException | RuntimeException | Error error) {
+				throw error;
+			} catch (Throwable error) {
+				throw new IllegalStateException("Cannot get " + name, error);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,291 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import io.toadlabs.jfgjds.data.JsonArray;
+import io.toadlabs.jfgjds.data.JsonValue;
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * Parses a document which is one large array on a fork/join pool, by cutting
+ * the bytes into chunks and parsing the elements which start in each chunk
+ * separately.
+ * <p>
+ * Whether a chunk starts within a string can't be told from the chunk alone,
+ * so first each chunk is scanned once for every state it could start in -
+ * outside a string, in a string, or just after a backslash - noting the state
+ * it would end in and how far it changes the nesting. Chaining these from the
+ * start of the document gives the true state and depth at every chunk, so
+ * each chunk can find its first element without looking at those before it.
+ * <p>
+ * The scan doesn't validate anything. The chunks are parsed normally, and each
+ * must stop exactly where the next begins, so a document which confuses the
+ * scan still fails rather than being misread.
+ */
+final class ParallelArrayParser {
+
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final int OUTSIDE = 0;
+	private static final int STRING = 1;
+	// in a string, just after a backslash
+	private static final int ESCAPE = 2;
+
+	private final byte[] in;
+	private final int end;
+	// the bounds of each chunk; the first starts on the opening bracket
+	private final int[] bounds;
+
+	private ParallelArrayParser(byte[] in, int start, int end, int chunks) {
+		this.in = in;
+		this.end = end;
+		bounds = new int[chunks + 1];
+
+		for (int chunk = 0; chunk <= chunks; chunk++) {
+			bounds[chunk] = (int) (start + (long) (end - start) * chunk / chunks);
+		}
+	}
+
+	/**
+	 * Reads a document, in parallel if it is an array which is large enough to
+	 * be worth it.
+	 */
+	static JsonValue read(byte[] in, int offset, int length, ForkJoinPool pool) throws IOException {
+		int start = offset;
+		int end = offset + length;
+
+		while (start < end && isWhitespace(in[start])) {
+			start++;
+		}
+
+		int chunks = (int) Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD,
+				(end - start) / MIN_CHUNK_SIZE);
+
+		if (chunks < 2 || in[start] != '[') {
+			return JsonDeserializer.read(in, offset, length);
+		}
+
+		return new ParallelArrayParser(in, start, end, chunks).read(pool);
+	}
+
+	private JsonValue read(ForkJoinPool pool) throws IOException {
+		int chunks = bounds.length - 1;
+		List<Callable<long[]>> scans = new ArrayList<>(chunks);
+
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int from = bounds[chunk];
+			int to = bounds[chunk + 1];
+			scans.add(() -> new long[] { scan(from, to, OUTSIDE), scan(from, to, STRING), scan(from, to, ESCAPE) });
+		}
+
+		List<long[]> summaries = invokeAll(pool, scans);
+		List<Callable<Chunk>> parses = new ArrayList<>(chunks);
+		int state = OUTSIDE;
+		int depth = 0;
+
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int from = bounds[chunk];
+			int to = bounds[chunk + 1];
+			int startState = state;
+			int startDepth = depth;
+			parses.add(() -> parse(from, to, startState, startDepth));
+
+			long summary = summaries.get(chunk)[state];
+			state = (int) (summary & 3);
+			depth += (int) (summary >> 2);
+		}
+
+		JsonArray result = new JsonArray();
+		// where the next chunk must carry on from
+		int expected = bounds[0];
+		int close = -1;
+
+		for (Chunk chunk : invokeAll(pool, parses)) {
+			if (chunk.first == -1) {
+				continue;
+			}
+
+			if (close != -1 || chunk.first != expected) {
+				throw new JsonParseException("Malformed array near byte " + chunk.first);
+			}
+
+			result.addAll(chunk.values);
+
+			if (chunk.closed) {
+				close = chunk.last;
+			} else {
+				expected = chunk.last;
+			}
+		}
+
+		if (close == -1) {
+			throw new JsonParseException("Expected ']' but got EOF");
+		}
+
+		for (int pos = close + 1; pos < end; pos++) {
+			if (!isWhitespace(in[pos])) {
+				throw new JsonParseException("Found trailing non-whitespace characters");
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Runs through a chunk as if it started in the given state.
+	 *
+	 * @return The change in depth, shifted left by two, with the state it ends
+	 *         in.
+	 */
+	private long scan(int from, int to, int state) {
+		byte[] in = this.in;
+		int depth = 0;
+
+		for (int pos = from; pos < to; pos++) {
+			byte character = in[pos];
+
+			if (state == OUTSIDE) {
+				if (character == '"') {
+					state = STRING;
+				} else if (character == '[' || character == '{') {
+					depth++;
+				} else if (character == ']' || character == '}') {
+					depth--;
+				}
+			} else if (state == ESCAPE) {
+				state = STRING;
+			} else if (character == '\\') {
+				state = ESCAPE;
+			} else if (character == '"') {
+				state = OUTSIDE;
+			}
+		}
+
+		return (long) depth << 2 | state;
+	}
+
+	/**
+	 * Parses the elements whose preceding bracket or comma is within the chunk.
+	 */
+	private Chunk parse(int from, int to, int state, int depth) throws IOException {
+		byte[] in = this.in;
+		int first = -1;
+
+		for (int pos = from; pos < to && first == -1; pos++) {
+			byte character = in[pos];
+
+			if (state == OUTSIDE) {
+				if (character == '"') {
+					state = STRING;
+				} else if (character == '[' || character == '{') {
+					if (depth == 0) {
+						first = pos;
+					}
+					depth++;
+				} else if (character == ']' || character == '}') {
+					if (depth <= 1) {
+						// the end of the array, which the chunk before reaches
+						break;
+					}
+					depth--;
+				} else if (character == ',' && depth == 1) {
+					first = pos;
+				}
+			} else if (state == ESCAPE) {
+				state = STRING;
+			} else if (character == '\\') {
+				state = ESCAPE;
+			} else if (character == '"') {
+				state = OUTSIDE;
+			}
+		}
+
+		Chunk chunk = new Chunk();
+		chunk.first = first;
+
+		if (first == -1) {
+			return chunk;
+		}
+
+		Utf8Parser parser = new Utf8Parser().setup(in, first + 1, end - first - 1);
+		parser.skipWhitespace();
+
+		if (in[first] == '[' && parser.character() == ']') {
+			chunk.closed = true;
+			chunk.last = parser.pos;
+			return chunk;
+		}
+
+		while (true) {
+			parser.skipWhitespace();
+			parser.readElement(chunk.values);
+			parser.skipWhitespace();
+
+			if (parser.character() == ']') {
+				chunk.closed = true;
+				chunk.last = parser.pos;
+				return chunk;
+			}
+
+			parser.assertCharacter(',');
+
+			if (parser.pos >= to) {
+				chunk.last = parser.pos;
+				return chunk;
+			}
+
+			parser.read();
+		}
+	}
+
+	private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+		List<T> results = new ArrayList<>(tasks.size());
+
+		for (Future<T> future : pool.invokeAll(tasks)) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException error) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while parsing");
+			} catch (ExecutionException error) {
+				Throwable cause = error.getCause();
+
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+
+				throw new IllegalStateException(cause);
+			}
+		}
+
+		return results;
+	}
+
+	private static boolean isWhitespace(byte character) {
+		return character == ' ' || character == '\n' || character == '\r' || character == '\t';
+	}
+
+	private static final class Chunk {
+
+		final JsonArray values = new JsonArray();
+		// the position of the bracket or comma before the first element, or -1 if none
+		int first;
+		// the position of the comma after the last element, or the closing bracket
+		int last;
+		boolean closed;
+
+	}
+
+}
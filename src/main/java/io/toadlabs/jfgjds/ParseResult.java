@@ -0,0 +1,80 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import io.toadlabs.jfgjds.data.JsonValue;
+
+/**
+ * The result of reading one document of a batch: either its value, or the
+ * error which stopped it.
+ */
+public final class ParseResult {
+
+	private final JsonValue value;
+	private final IOException error;
+
+	private ParseResult(JsonValue value, IOException error) {
+		this.value = value;
+		this.error = error;
+	}
+
+	static ParseResult success(JsonValue value) {
+		return new ParseResult(value, null);
+	}
+
+	static ParseResult failure(IOException error) {
+		return new ParseResult(null, error);
+	}
+
+	/**
+	 * Gets whether the document was read.
+	 *
+	 * @return <code>true</code> if there is a value.
+	 */
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	/**
+	 * Gets the value, if the document was read.
+	 *
+	 * @return The value, or <code>null</code> if it failed.
+	 */
+	public @Nullable JsonValue getValue() {
+		return value;
+	}
+
+	/**
+	 * Gets the error, if the document failed.
+	 *
+	 * @return The error, usually a
+	 *         {@link io.toadlabs.jfgjds.exception.JsonParseException}, or
+	 *         <code>null</code> if it was read.
+	 */
+	public @Nullable IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Gets the value, otherwise throws the error.
+	 *
+	 * @return The value.
+	 * @throws IOException If the document failed.
+	 */
+	public @NotNull JsonValue getValueOrThrow() throws IOException {
+		if (error != null) {
+			throw error;
+		}
+
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return error == null ? "ParseResult[" + value + "]" : "ParseResult[" + error + "]";
+	}
+
+}
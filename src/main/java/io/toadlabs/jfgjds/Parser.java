@@ -1,8 +1,6 @@
 package io.toadlabs.jfgjds;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.util.HashMap;
 
 import io.toadlabs.jfgjds.data.JsonArray;
 import io.toadlabs.jfgjds.data.JsonBoolean;
@@ -13,42 +11,62 @@ import io.toadlabs.jfgjds.data.JsonString;
 import io.toadlabs.jfgjds.data.JsonValue;
 import io.toadlabs.jfgjds.exception.JsonParseException;
 
-final class Parser {
-
-	Reader in;
-	int pos;
-	int length;
-	char[] buffer;
-
-	Parser setup(Reader in) throws IOException {
-		this.in = in;
-		buffer = null;
-		pos = length = 0;
-		read();
-		return this;
-	}
-
-	int character() {
-		if (length == -1) {
-			return -1;
-		}
-
-		return buffer[pos];
-	}
-
-	int read() throws IOException {
-		if (length == -1) {
-			return -1;
-		}
-
-		if (buffer == null || pos++ == length - 1) {
-			pos = 0;
-			buffer = new char[8192];
-			length = in.read(buffer);
-		}
-
-		return character();
-	}
+/**
+ * The JSON grammar, shared by every parser engine. Subclasses provide the
+ * cursor over their input and the string decoding, since that is the only part
+ * which depends on how the input is encoded.
+ */
+abstract class Parser {
+
+	// reused between numbers
+	private final StringBuilder lexeme = new StringBuilder();
+	// the digits of the last number read, for DoubleConversion
+	private boolean negative;
+	private long significand;
+	private int significantDigits;
+	private int exponent;
+	private boolean truncated;
+	// canonicalises object keys, if set
+	SymbolTable symbols;
+	// set for the parsers which threads keep, which hold on to their buffers between parses
+	boolean kept;
+
+	/**
+	 * Gets the character at the cursor.
+	 *
+	 * @return The character, or <code>-1</code> at EOF.
+	 */
+	abstract int character();
+
+	/**
+	 * Advances the cursor by one character.
+	 *
+	 * @return The new character, or <code>-1</code> at EOF.
+	 */
+	abstract int read() throws IOException;
+
+	/**
+	 * Reads a string, starting with the cursor on the opening quote and leaving
+	 * it on the closing quote.
+	 *
+	 * @return The decoded string.
+	 */
+	abstract String readJString() throws IOException;
+
+	/**
+	 * Reads an object key, which is the same as {@link #readJString()} but
+	 * canonicalised by the symbol table.
+	 *
+	 * @return The decoded key.
+	 */
+	abstract String readKey() throws IOException;
+
+	/**
+	 * Drops any references to the input, so that it is not kept alive by the
+	 * parser. Parsers which aren't kept by a thread also give their buffer back
+	 * to the pool.
+	 */
+	abstract void release();
 
 	void assertCharacter(char character) throws JsonParseException {
 		if (character() != character) {
@@ -75,10 +93,7 @@ final class Parser {
 
 	JsonValue readSingleValue() throws IOException {
 		skipWhitespace();
-		JsonValue result = readValue();
-		if (!(result instanceof JsonNumber)) {
-			read();
-		}
+		JsonValue result = readValueFully();
 		skipWhitespace();
 		if (character() != -1) {
 			throw new JsonParseException("Found trailing non-whitespace characters");
@@ -86,6 +101,36 @@ final class Parser {
 		return result;
 	}
 
+	/**
+	 * Reads the next of a sequence of values, such as JSON Lines or
+	 * concatenated JSON. Values may be separated by any whitespace, or by nothing
+	 * where that is unambiguous.
+	 *
+	 * @return The value, or <code>null</code> at EOF.
+	 */
+	JsonValue readNextValue() throws IOException {
+		skipWhitespace();
+		if (character() == -1) {
+			return null;
+		}
+		return readValueFully();
+	}
+
+	/**
+	 * Reads a value, leaving the cursor after it rather than on its last
+	 * character.
+	 *
+	 * @return The value.
+	 */
+	JsonValue readValueFully() throws IOException {
+		JsonValue result = readValue();
+		// numbers need to look past their end anyway
+		if (!(result instanceof JsonNumber)) {
+			read();
+		}
+		return result;
+	}
+
 	JsonValue readValue() throws IOException {
 		assertNoEOF("a value");
 
@@ -124,7 +169,7 @@ final class Parser {
 
 	JsonObject readObject() throws IOException {
 		assertCharacter('{');
-		JsonObject obj = new JsonObject(new HashMap<>());
+		JsonObject obj = new JsonObject();
 		boolean comma = false;
 
 		read();
@@ -137,18 +182,126 @@ final class Parser {
 				skipWhitespace();
 			}
 
-			String key = readJString();
+			String key = readKey();
 			read();
 			skipWhitespace();
 			assertCharacter(':');
 			read();
 			skipWhitespace();
 
-			JsonValue value = readValue();
+			JsonValue value = readValueFully();
 			obj.put(key, value);
 
-			if (!(value instanceof JsonNumber)) {
+			skipWhitespace();
+			comma = true;
+		}
+
+		return obj;
+	}
+
+	JsonArray readArray() throws IOException {
+		assertCharacter('[');
+		JsonArray array = new JsonArray();
+		boolean comma = false;
+
+		read();
+		skipWhitespace();
+
+		while (character() != ']') {
+			if (comma) {
+				assertCharacter(',');
 				read();
+				skipWhitespace();
+			}
+
+			readElement(array);
+			skipWhitespace();
+			comma = true;
+		}
+
+		return array;
+	}
+
+	/**
+	 * Reads a value onto the end of an array, leaving the cursor after it.
+	 *
+	 * @param array The array.
+	 */
+	void readElement(JsonArray array) throws IOException {
+		int character = character();
+
+		if (character == '-' || isDigit()) {
+			readNumber(array);
+		} else {
+			array.add(readValueFully());
+		}
+	}
+
+	JsonValue readSingleValue(JsonProjection projection) throws IOException {
+		skipWhitespace();
+		JsonValue result = readValueFully(projection);
+		skipWhitespace();
+		if (character() != -1) {
+			throw new JsonParseException("Found trailing non-whitespace characters");
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a value, building only the parts which the projection keeps and
+	 * skipping the rest, leaving the cursor after it.
+	 *
+	 * @param projection The projection.
+	 * @return The value.
+	 */
+	JsonValue readValueFully(JsonProjection projection) throws IOException {
+		if (!projection.isWhole()) {
+			int character = character();
+			JsonValue result = null;
+
+			if (character == '{') {
+				result = readObject(projection);
+			} else if (character == '[' && projection.elements() != null) {
+				result = readArray(projection.elements());
+			}
+
+			if (result != null) {
+				read();
+				return result;
+			}
+		}
+
+		return readValueFully();
+	}
+
+	JsonObject readObject(JsonProjection projection) throws IOException {
+		assertCharacter('{');
+		JsonObject obj = new JsonObject();
+		boolean comma = false;
+
+		read();
+		skipWhitespace();
+
+		while (character() != '}') {
+			if (comma) {
+				assertCharacter(',');
+				read();
+				skipWhitespace();
+			}
+
+			String key = readKey();
+			read();
+			skipWhitespace();
+			assertCharacter(':');
+			read();
+			skipWhitespace();
+
+			JsonProjection field = projection.field(key);
+
+			if (field == null) {
+				skipValue();
+			} else {
+				obj.put(key, readValueFully(field));
 			}
 
 			skipWhitespace();
@@ -158,7 +311,7 @@ final class Parser {
 		return obj;
 	}
 
-	JsonArray readArray() throws IOException {
+	JsonArray readArray(JsonProjection elements) throws IOException {
 		assertCharacter('[');
 		JsonArray array = new JsonArray();
 		boolean comma = false;
@@ -173,120 +326,544 @@ final class Parser {
 				skipWhitespace();
 			}
 
-			JsonValue value = readValue();
-			array.add(value);
+			if (elements.isWhole()) {
+				readElement(array);
+			} else {
+				array.add(readValueFully(elements));
+			}
+
+			skipWhitespace();
+			comma = true;
+		}
+
+		return array;
+	}
+
+	/**
+	 * Parses the input as one value, firing events on the handler instead of
+	 * building a tree.
+	 *
+	 * @param handler The handler.
+	 * @return <code>false</code> if the handler stopped the parser early.
+	 */
+	boolean parseSingleValue(JsonHandler handler) throws IOException {
+		skipWhitespace();
+		if (!parseValue(handler)) {
+			return false;
+		}
+		skipWhitespace();
+		if (character() != -1) {
+			throw new JsonParseException("Found trailing non-whitespace characters");
+		}
+		return true;
+	}
 
-			if (!(value instanceof JsonNumber)) {
+	/**
+	 * Parses a value, firing events on the handler and leaving the cursor after
+	 * the value.
+	 *
+	 * @param handler The handler.
+	 * @return <code>false</code> if the handler stopped the parser early.
+	 */
+	boolean parseValue(JsonHandler handler) throws IOException {
+		assertNoEOF("a value");
+
+		int character = character();
+
+		switch (character) {
+		case '{':
+			return parseObject(handler);
+		case '[':
+			return parseArray(handler);
+		case '"':
+			String string = readJString();
+			read();
+			return handler.string(string);
+		case 't':
+		case 'f':
+			JsonBoolean bool = readBoolean();
+			if (bool != null) {
 				read();
+				return handler.booleanValue(bool.getValue());
+			}
+			break;
+		case 'n':
+			if (readNull()) {
+				read();
+				return handler.nullValue();
+			}
+			break;
+		}
+
+		if (character == '-' || isDigit()) {
+			if (handler.rawNumbers()) {
+				return handler.rawNumber(readNumberLexeme());
+			}
+			return handler.number(readDouble());
+		}
+
+		throw new JsonParseException("Expected a JSON value but got '" + (char) character + "'");
+	}
+
+	boolean parseObject(JsonHandler handler) throws IOException {
+		assertCharacter('{');
+		boolean comma = false;
+
+		if (!handler.startObject()) {
+			return false;
+		}
+
+		read();
+		skipWhitespace();
+
+		while (character() != '}') {
+			if (comma) {
+				assertCharacter(',');
+				read();
+				skipWhitespace();
+			}
+
+			String key = readKey();
+			read();
+			skipWhitespace();
+			assertCharacter(':');
+			read();
+			skipWhitespace();
+
+			if (!handler.key(key) || !parseValue(handler)) {
+				return false;
 			}
 
 			skipWhitespace();
 			comma = true;
 		}
 
-		return array;
+		read();
+		return handler.endObject();
 	}
 
-	JsonString readString() throws IOException {
-		return new JsonString(readJString());
+	boolean parseArray(JsonHandler handler) throws IOException {
+		assertCharacter('[');
+		boolean comma = false;
+
+		if (!handler.startArray()) {
+			return false;
+		}
+
+		read();
+		skipWhitespace();
+
+		while (character() != ']') {
+			if (comma) {
+				assertCharacter(',');
+				read();
+				skipWhitespace();
+			}
+
+			if (!parseValue(handler)) {
+				return false;
+			}
+
+			skipWhitespace();
+			comma = true;
+		}
+
+		read();
+		return handler.endArray();
 	}
 
-	String readJString() throws IOException {
-		assertCharacter('"');
+	/**
+	 * Passes over a value without building anything, leaving the cursor after
+	 * it. The syntax is still checked.
+	 */
+	void skipValue() throws IOException {
+		assertNoEOF("a value");
 
-		StringBuilder result = new StringBuilder();
+		int character = character();
 
-		while (read() != '"') {
-			int character = character();
+		switch (character) {
+		case '{':
+			skipObject();
+			return;
+		case '[':
+			skipArray();
+			return;
+		case '"':
+			skipString();
+			read();
+			return;
+		case 't':
+		case 'f':
+			if (readBoolean() != null) {
+				read();
+				return;
+			}
+			break;
+		case 'n':
+			if (readNull()) {
+				read();
+				return;
+			}
+			break;
+		}
 
-			if (character >= '\u0000' && character <= '\u001F') {
-				throw new JsonParseException("Found unescaped control character within string");
+		if (character == '-' || isDigit()) {
+			skipNumber();
+			return;
+		}
+
+		throw new JsonParseException("Expected a JSON value but got '" + (char) character + "'");
+	}
+
+	private void skipObject() throws IOException {
+		assertCharacter('{');
+		boolean comma = false;
+
+		read();
+		skipWhitespace();
+
+		while (character() != '}') {
+			if (comma) {
+				assertCharacter(',');
+				read();
+				skipWhitespace();
 			}
 
-			switch (character) {
-			case -1:
+			skipString();
+			read();
+			skipWhitespace();
+			assertCharacter(':');
+			read();
+			skipWhitespace();
+			skipValue();
+			skipWhitespace();
+			comma = true;
+		}
+
+		read();
+	}
+
+	private void skipArray() throws IOException {
+		assertCharacter('[');
+		boolean comma = false;
+
+		read();
+		skipWhitespace();
+
+		while (character() != ']') {
+			if (comma) {
+				assertCharacter(',');
+				read();
+				skipWhitespace();
+			}
+
+			skipValue();
+			skipWhitespace();
+			comma = true;
+		}
+
+		read();
+	}
+
+	/**
+	 * Passes over a string, starting with the cursor on the opening quote and
+	 * leaving it on the closing quote.
+	 */
+	void skipString() throws IOException {
+		assertCharacter('"');
+
+		int character;
+
+		while ((character = read()) != '"') {
+			if (character == -1) {
 				throw new JsonParseException("Expected '\"' but got EOF");
-			case 0x7F:
-				if (read() == '"') {
-					return result.toString();
-				}
-				continue;
-			case '\\':
-				int seq = read();
-
-				switch (seq) {
-				case -1:
-					throw new JsonParseException("Expected an escape sequence but got EOF");
-				case '\\':
-					break;
-				case '/':
-				case '\"':
-					character = seq;
-					break;
-				case 'b':
-					character = '\b';
-					break;
-				case 'f':
-					character = '\f';
-					break;
-				case 'n':
-					character = '\n';
-					break;
-				case 'r':
-					character = '\r';
-					break;
-				case 't':
-					character = '\t';
-					break;
-				case 'u':
-					// char array to allow allocation in advance.
-					char[] digits = new char[4];
-
-					for (int index = 0; index < digits.length; index++) {
-						character = read();
-						if (index == 0 && character() == '-') {
-							throw new JsonParseException("Hex sequence may not be negative");
-						} else if (character() == -1) {
-							throw new JsonParseException("Expected a hex sequence but got EOF");
-						}
-						digits[index] = (char) character;
-					}
-
-					String digitsString = new String(digits);
-
-					try {
-						character = Integer.parseInt(digitsString, 16);
-					} catch (NumberFormatException error) {
-						throw new JsonParseException("Could not parse hex sequence \"" + digitsString + "\"");
-					}
-
-					break;
-				default:
-					throw new JsonParseException("Invalid escape sequence: \\" + (char) seq);
+			} else if (character < 0x20) {
+				throw new JsonParseException("Found unescaped control character within string");
+			} else if (character == '\\') {
+				skipEscape();
+			}
+		}
+	}
+
+	/**
+	 * Checks an escape sequence, starting with the cursor on its backslash and
+	 * leaving it on its last character.
+	 */
+	void skipEscape() throws IOException {
+		int seq = read();
+
+		switch (seq) {
+		case -1:
+			throw new JsonParseException("Expected an escape sequence but got EOF");
+		case '"':
+		case '\\':
+		case '/':
+		case 'b':
+		case 'f':
+		case 'n':
+		case 'r':
+		case 't':
+			return;
+		case 'u':
+			for (int index = 0; index < 4; index++) {
+				int digit = read();
+
+				if (digit == -1) {
+					throw new JsonParseException("Expected a hex sequence but got EOF");
+				} else if (hexDigit(digit) == -1) {
+					throw new JsonParseException("Invalid character in hex sequence: '" + (char) digit + "'");
 				}
-				break;
 			}
+			return;
+		default:
+			throw new JsonParseException("Invalid escape sequence: \\" + (char) seq);
+		}
+	}
 
-			result.append((char) character);
+	/**
+	 * Passes over a number, leaving the cursor after it.
+	 */
+	private void skipNumber() throws IOException {
+		if (character() == '-') {
+			read();
 		}
 
-		return result.toString();
+		if (character() == '0') {
+			read();
+			if (isDigit()) {
+				throw new JsonParseException("Found superfluous leading zero");
+			}
+		} else if (!isDigit()) {
+			throw new JsonParseException("Expected digits");
+		}
+
+		while (isDigit()) {
+			read();
+		}
+
+		if (character() == '.') {
+			read();
+			assertNoEOF("digits");
+
+			if (!isDigit()) {
+				throw new JsonParseException("Expected digits after decimal point");
+			}
+
+			while (isDigit()) {
+				read();
+			}
+		}
+
+		if (character() == 'e' || character() == 'E') {
+			read();
+			assertNoEOF("digits");
+
+			if (character() == '+' || character() == '-') {
+				read();
+			}
+
+			if (!isDigit()) {
+				throw new JsonParseException("Expected exponent digits");
+			}
+
+			while (isDigit()) {
+				read();
+			}
+		}
+	}
+
+	JsonString readString() throws IOException {
+		return new JsonString(readJString());
 	}
 
 	boolean isDigit() {
 		return character() >= '0' && character() <= '9';
 	}
 
+	/**
+	 * Gets the value of a digit in a unicode escape. Only ASCII hex digits
+	 * are allowed, unlike {@link Character#digit(int, int)}, which
+	 * accepts fullwidth and other Unicode digits.
+	 *
+	 * @param character The character.
+	 * @return The value, or -1 if the character isn't a hex digit.
+	 */
+	static int hexDigit(int character) {
+		if (character >= '0' && character <= '9') {
+			return character - '0';
+		} else if (character >= 'a' && character <= 'f') {
+			return character - 'a' + 10;
+		} else if (character >= 'A' && character <= 'F') {
+			return character - 'A' + 10;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Reads a number, leaving the cursor after it. Integers which fit in a long
+	 * are accumulated directly, and anything else keeps its text to be
+	 * converted on demand.
+	 *
+	 * @return The number.
+	 */
 	JsonNumber readNumber() throws IOException {
-		StringBuilder result = new StringBuilder();
+		if (scanNumber()) {
+			return new JsonNumber(significand);
+		}
 
-		if (character() == '-') {
-			result.append((char) character());
+		return JsonNumber.ofLexeme(lexeme.toString(), toDouble());
+	}
+
+	/**
+	 * Reads a number straight into an array, so that arrays of numbers can be
+	 * stored without boxing. Numbers which wouldn't be written back out exactly
+	 * as they were read from a double are still added as JsonNumbers.
+	 *
+	 * @param array The array.
+	 */
+	private void readNumber(JsonArray array) throws IOException {
+		if (scanNumber()) {
+			array.add(significand);
+			return;
+		}
+
+		double value = toDouble();
+
+		if (value == value && isPlainDouble()) {
+			array.add(value);
+		} else {
+			array.add(JsonNumber.ofLexeme(lexeme.toString(), value));
+		}
+	}
+
+	/**
+	 * Gets whether formatting the double of the last number read gives back its
+	 * lexeme. Only 15 significant digits are sure to come back the same, and the
+	 * lexeme must be laid out as the formatter would: with a fraction which
+	 * doesn't end in zero, no exponent, and fewer than six zeros after the
+	 * point before the first significant digit.
+	 */
+	private boolean isPlainDouble() {
+		StringBuilder lexeme = this.lexeme;
+		int length = lexeme.length();
+
+		if (truncated || significantDigits > 15 || significantDigits + exponent <= -6
+				|| lexeme.charAt(length - 1) == '0') {
+			return false;
+		}
+
+		boolean point = false;
+
+		for (int index = 0; index < length; index++) {
+			char character = lexeme.charAt(index);
+
+			if (character == 'e' || character == 'E') {
+				return false;
+			}
+
+			point |= character == '.';
+		}
+
+		return point;
+	}
+
+	/**
+	 * Reads a number, leaving the cursor after it.
+	 *
+	 * @return <code>true</code> if it is an integer which fits in a long, which
+	 *         is left in {@link #significand}. Otherwise the lexeme and digits
+	 *         are left for conversion.
+	 */
+	private boolean scanNumber() throws IOException {
+		boolean negative = character() == '-';
+
+		if (negative) {
 			read();
 		}
 
+		long value = 0;
+		int digits = 0;
+
 		if (character() == '0') {
-			result.append((char) character());
+			read();
+			digits = 1;
+			if (isDigit()) {
+				throw new JsonParseException("Found superfluous leading zero");
+			}
+		} else if (!isDigit()) {
+			throw new JsonParseException("Expected digits");
+		}
+
+		// 18 digits can't overflow
+		while (digits < 18 && isDigit()) {
+			value = value * 10 + (character() - '0');
+			digits++;
+			read();
+		}
+
+		int character = character();
+
+		if (character != '.' && character != 'e' && character != 'E' && !isDigit() && !(negative && value == 0)) {
+			significand = negative ? -value : value;
+			return true;
+		}
+
+		// the digits so far are the same as the long, as there can't be a leading zero
+		StringBuilder result = lexeme;
+		result.setLength(0);
+
+		if (negative) {
+			result.append('-');
+		}
+
+		result.append(value);
+		startDigits(negative, value, value == 0 ? 0 : digits);
+		readNumberRest(result);
+		return false;
+	}
+
+	double readDouble() throws IOException {
+		StringBuilder lexeme = readNumberLexeme();
+		double result = toDouble();
+
+		if (result == result) {
+			return result;
+		}
+
+		try {
+			return Double.parseDouble(lexeme.toString());
+		} catch (NumberFormatException error) {
+			throw new JsonParseException("Failed to parse number '" + lexeme + "'");
+		}
+	}
+
+	/**
+	 * Converts the digits of the last number read.
+	 *
+	 * @return The double, or NaN if it needs to be parsed from the lexeme.
+	 */
+	private double toDouble() {
+		return DoubleConversion.parse(negative, significand, exponent, truncated);
+	}
+
+	/**
+	 * Reads a number without interpreting it, leaving the cursor after it.
+	 *
+	 * @return A builder containing the number, which is reused by the next call.
+	 */
+	StringBuilder readNumberLexeme() throws IOException {
+		StringBuilder result = lexeme;
+		result.setLength(0);
+		startDigits(character() == '-', 0, 0);
+
+		if (negative) {
+			result.append('-');
+			read();
+		}
+
+		if (character() == '0') {
+			result.append('0');
 			read();
 			if (isDigit()) {
 				throw new JsonParseException("Found superfluous leading zero");
@@ -295,7 +872,27 @@ final class Parser {
 			throw new JsonParseException("Expected digits");
 		}
 
-		while (character() != -1 && isDigit()) {
+		readNumberRest(result);
+		return result;
+	}
+
+	private void startDigits(boolean negative, long significand, int significantDigits) {
+		this.negative = negative;
+		this.significand = significand;
+		this.significantDigits = significantDigits;
+		exponent = 0;
+		truncated = false;
+	}
+
+	/**
+	 * Reads the rest of a number once its first digit has been validated,
+	 * gathering its significand and exponent.
+	 *
+	 * @param result The builder to append to.
+	 */
+	private void readNumberRest(StringBuilder result) throws IOException {
+		while (isDigit()) {
+			addDigit(false);
 			result.append((char) character());
 			read();
 		}
@@ -310,39 +907,65 @@ final class Parser {
 				throw new JsonParseException("Expected digits after decimal point");
 			}
 
-			while (character() != -1 && isDigit()) {
+			while (isDigit()) {
+				addDigit(true);
 				result.append((char) character());
 				read();
 			}
 		}
 
 		if (character() == 'e' || character() == 'E') {
-			result.append('E');
+			result.append((char) character());
 
 			read();
 			assertNoEOF("digits");
 
-			if (character() == '+' || character() == '-') {
+			boolean negativeExponent = character() == '-';
+
+			if (character() == '+' || negativeExponent) {
 				result.append((char) character());
 				read();
 			}
 
-			if (!(character() == '+' || character() == '-' || isDigit())) {
+			if (!isDigit()) {
 				throw new JsonParseException("Expected exponent digits");
 			}
 
-			while (character() != -1 && isDigit()) {
+			int value = 0;
+
+			while (isDigit()) {
+				// anything this large over- or underflows regardless
+				if (value < 100_000) {
+					value = value * 10 + (character() - '0');
+				}
+
 				result.append((char) character());
 				read();
 			}
+
+			exponent += negativeExponent ? -value : value;
 		}
+	}
 
-		String resultStr = result.toString();
+	private void addDigit(boolean fraction) {
+		int digit = character() - '0';
 
-		try {
-			return new JsonNumber(Double.parseDouble(resultStr));
-		} catch (NumberFormatException error) {
-			throw new JsonParseException("Failed to parse number '" + resultStr + "'");
+		if (significantDigits < 19) {
+			significand = significand * 10 + digit;
+
+			if (significand != 0) {
+				significantDigits++;
+			}
+
+			if (fraction) {
+				exponent--;
+			}
+		} else {
+			if (!fraction) {
+				exponent++;
+			}
+
+			truncated |= digit != 0;
 		}
 	}
 
@@ -0,0 +1,231 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.toadlabs.jfgjds.data.JsonValue;
+
+/**
+ * Evaluates JSON Pointers while reading, building only the values they point
+ * to. The pointers are merged into a tree of tokens, which the parser follows
+ * down; anything off the tree is skipped, and reading stops as soon as every
+ * pointer has been found.
+ * <p>
+ * If an object has a key more than once, the first is used. Whatever comes
+ * after the last value found is not read, so isn't validated.
+ */
+final class PointerMatcher {
+
+	private final Node root = new Node(null);
+	private final JsonValue[] results;
+	private int remaining;
+
+	PointerMatcher(JsonPointer[] pointers) {
+		results = new JsonValue[pointers.length];
+		remaining = pointers.length;
+
+		for (int target = 0; target < pointers.length; target++) {
+			JsonPointer pointer = pointers[target];
+			Node node = root;
+			node.pending++;
+
+			for (int index = 0; index < pointer.size(); index++) {
+				node = node.child(pointer.token(index), pointer.index(index));
+				node.pending++;
+			}
+
+			node.targets.add(target);
+			node.pointers.add(pointer);
+		}
+	}
+
+	/**
+	 * Reads a document, looking for the pointers.
+	 *
+	 * @return The value of each pointer in order, or <code>null</code> for those
+	 *         which weren't found.
+	 */
+	List<JsonValue> match(Parser parser) throws IOException {
+		if (remaining != 0) {
+			parser.skipWhitespace();
+			match(parser, root);
+		}
+
+		return Arrays.asList(results);
+	}
+
+	private void match(Parser parser, Node node) throws IOException {
+		if (!node.targets.isEmpty()) {
+			// anything deeper is within this value
+			resolve(node, parser.readValueFully(), node.depth());
+			return;
+		}
+
+		int character = parser.character();
+
+		if (character == '{' && !node.children.isEmpty()) {
+			matchObject(parser, node);
+		} else if (character == '[' && node.indexed.length != 0) {
+			matchArray(parser, node);
+		} else {
+			parser.skipValue();
+		}
+	}
+
+	private void matchObject(Parser parser, Node node) throws IOException {
+		boolean comma = false;
+
+		parser.read();
+		parser.skipWhitespace();
+
+		while (parser.character() != '}') {
+			if (comma) {
+				parser.assertCharacter(',');
+				parser.read();
+				parser.skipWhitespace();
+			}
+
+			Node child = node.children.get(parser.readKey());
+			parser.read();
+			parser.skipWhitespace();
+			parser.assertCharacter(':');
+			parser.read();
+			parser.skipWhitespace();
+
+			if (child == null || child.pending == 0) {
+				parser.skipValue();
+			} else {
+				match(parser, child);
+
+				if (remaining == 0) {
+					return;
+				}
+			}
+
+			parser.skipWhitespace();
+			comma = true;
+		}
+
+		parser.read();
+	}
+
+	private void matchArray(Parser parser, Node node) throws IOException {
+		boolean comma = false;
+		int element = 0;
+
+		parser.read();
+		parser.skipWhitespace();
+
+		while (parser.character() != ']') {
+			if (comma) {
+				parser.assertCharacter(',');
+				parser.read();
+				parser.skipWhitespace();
+			}
+
+			Node child = node.element(element++);
+
+			if (child == null || child.pending == 0) {
+				parser.skipValue();
+			} else {
+				match(parser, child);
+
+				if (remaining == 0) {
+					return;
+				}
+			}
+
+			parser.skipWhitespace();
+			comma = true;
+		}
+
+		parser.read();
+	}
+
+	/**
+	 * Settles every pointer at or below a node, from the value at the node.
+	 */
+	private void resolve(Node node, JsonValue value, int depth) {
+		for (int index = 0; index < node.targets.size(); index++) {
+			JsonPointer pointer = node.pointers.get(index);
+			JsonValue result = value;
+
+			for (int token = depth; token < pointer.size() && result != null; token++) {
+				result = pointer.step(result, token);
+			}
+
+			results[node.targets.get(index)] = result;
+			remaining--;
+
+			for (Node parent = node; parent != null; parent = parent.parent) {
+				parent.pending--;
+			}
+		}
+
+		for (Node child : node.children.values()) {
+			resolve(child, value, depth);
+		}
+	}
+
+	private static final class Node {
+
+		final Node parent;
+		final Map<String, Node> children = new HashMap<>();
+		// the children which can select an array element, by index
+		int[] indexes = new int[0];
+		Node[] indexed = new Node[0];
+		// the pointers which end here
+		final List<Integer> targets = new ArrayList<>(1);
+		final List<JsonPointer> pointers = new ArrayList<>(1);
+		// the number of pointers at or below here which haven't been found
+		int pending;
+
+		Node(Node parent) {
+			this.parent = parent;
+		}
+
+		Node child(String token, int index) {
+			Node child = children.get(token);
+
+			if (child == null) {
+				child = new Node(this);
+				children.put(token, child);
+
+				if (index != -1) {
+					indexes = Arrays.copyOf(indexes, indexes.length + 1);
+					indexed = Arrays.copyOf(indexed, indexed.length + 1);
+					indexes[indexes.length - 1] = index;
+					indexed[indexed.length - 1] = child;
+				}
+			}
+
+			return child;
+		}
+
+		Node element(int index) {
+			for (int candidate = 0; candidate < indexes.length; candidate++) {
+				if (indexes[candidate] == index) {
+					return indexed[candidate];
+				}
+			}
+
+			return null;
+		}
+
+		int depth() {
+			int result = 0;
+
+			for (Node node = parent; node != null; node = node.parent) {
+				result++;
+			}
+
+			return result;
+		}
+
+	}
+
+}
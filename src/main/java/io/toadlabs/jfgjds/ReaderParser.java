@@ -0,0 +1,258 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * Parser engine for character input.
+ */
+final class ReaderParser extends Parser {
+
+	Reader in;
+	// read instead of a reader, if set
+	String string;
+	int stringPos;
+	int pos;
+	int length;
+	// kept between parses, by parsers which threads keep
+	char[] buffer;
+	// used to decode strings which cannot be copied straight from the buffer
+	char[] chars = new char[128];
+
+	ReaderParser setup(Reader in) throws IOException {
+		this.in = in;
+		string = null;
+		return setup();
+	}
+
+	/**
+	 * Sets up the parser to read a string, copying it into the buffer without a
+	 * reader in between.
+	 *
+	 * @param in The string.
+	 */
+	ReaderParser setup(String in) throws IOException {
+		this.in = null;
+		string = in;
+		stringPos = 0;
+		return setup();
+	}
+
+	private ReaderParser setup() throws IOException {
+		symbols = SymbolTable.getDefault();
+		if (buffer == null) {
+			buffer = BufferPool.getDefault().takeChars(8192);
+		}
+		fill();
+		return this;
+	}
+
+	@Override
+	void release() {
+		in = null;
+		string = null;
+
+		if (!kept && buffer != null) {
+			BufferPool.getDefault().giveChars(buffer);
+			buffer = null;
+		}
+
+		// so that one huge string doesn't stay pinned by a kept parser
+		if (chars.length > BufferPool.getDefault().getTypicalSize()) {
+			chars = new char[128];
+		}
+	}
+
+	private void fill() throws IOException {
+		pos = 0;
+
+		if (string == null) {
+			length = in.read(buffer);
+			return;
+		}
+
+		int count = Math.min(buffer.length, string.length() - stringPos);
+
+		if (count == 0) {
+			length = -1;
+			return;
+		}
+
+		string.getChars(stringPos, stringPos + count, buffer, 0);
+		stringPos += count;
+		length = count;
+	}
+
+	@Override
+	int character() {
+		if (length == -1) {
+			return -1;
+		}
+
+		return buffer[pos];
+	}
+
+	@Override
+	int read() throws IOException {
+		if (length == -1) {
+			return -1;
+		}
+
+		if (++pos == length) {
+			fill();
+		}
+
+		return character();
+	}
+
+	@Override
+	String readJString() throws IOException {
+		return readJString(false);
+	}
+
+	@Override
+	String readKey() throws IOException {
+		return readJString(symbols != null);
+	}
+
+	/**
+	 * Passes over a string, running through plain characters straight from the
+	 * buffer.
+	 */
+	@Override
+	void skipString() throws IOException {
+		assertCharacter('"');
+		read();
+
+		while (true) {
+			if (length == -1) {
+				throw new JsonParseException("Expected '\"' but got EOF");
+			}
+
+			char[] buffer = this.buffer;
+			int length = this.length;
+			int index = pos;
+			char value = 0;
+
+			while (index < length && (value = buffer[index]) != '"' && value != '\\' && value >= 0x20) {
+				index++;
+			}
+
+			if (index == length) {
+				pos = length - 1;
+				read();
+				continue;
+			}
+
+			pos = index;
+
+			if (value == '"') {
+				return;
+			} else if (value == '\\') {
+				skipEscape();
+				read();
+			} else {
+				throw new JsonParseException("Found unescaped control character within string");
+			}
+		}
+	}
+
+	private String readJString(boolean intern) throws IOException {
+		assertCharacter('"');
+
+		// fast path: the string has no escapes, and is already buffered
+		char[] buffer = this.buffer;
+		int start = pos + 1;
+
+		for (int index = start; index < length; index++) {
+			char value = buffer[index];
+
+			if (value == '"') {
+				pos = index;
+				return intern ? symbols.intern(buffer, start, index - start) : new String(buffer, start, index - start);
+			} else if (value < 0x20 || value == '\\') {
+				break;
+			}
+		}
+
+		char[] chars = this.chars;
+		int size = 0;
+
+		while (read() != '"') {
+			int character = character();
+
+			if (character >= '\u0000' && character <= '\u001F') {
+				throw new JsonParseException("Found unescaped control character within string");
+			}
+
+			switch (character) {
+			case -1:
+				throw new JsonParseException("Expected '\"' but got EOF");
+			case '\\':
+				int seq = read();
+
+				switch (seq) {
+				case -1:
+					throw new JsonParseException("Expected an escape sequence but got EOF");
+				case '\\':
+					break;
+				case '/':
+				case '\"':
+					character = seq;
+					break;
+				case 'b':
+					character = '\b';
+					break;
+				case 'f':
+					character = '\f';
+					break;
+				case 'n':
+					character = '\n';
+					break;
+				case 'r':
+					character = '\r';
+					break;
+				case 't':
+					character = '\t';
+					break;
+				case 'u':
+					int result = 0;
+
+					for (int index = 0; index < 4; index++) {
+						int digit = read();
+
+						if (digit == -1) {
+							throw new JsonParseException("Expected a hex sequence but got EOF");
+						}
+
+						int value = hexDigit(digit);
+
+						if (value == -1) {
+							throw new JsonParseException("Invalid character in hex sequence: '" + (char) digit + "'");
+						}
+
+						result = result << 4 | value;
+					}
+
+					character = result;
+					break;
+				default:
+					throw new JsonParseException("Invalid escape sequence: \\" + (char) seq);
+				}
+				break;
+			}
+
+			if (size == chars.length) {
+				chars = this.chars = Arrays.copyOf(chars, size << 1);
+			}
+
+			chars[size++] = (char) character;
+		}
+
+		return intern ? symbols.intern(chars, 0, size) : new String(chars, 0, size);
+	}
+
+}
@@ -0,0 +1,251 @@
+package io.toadlabs.jfgjds;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A bounded table of canonical object keys, so that a key repeated throughout
+ * a document - or across documents - is only allocated once, and its hash code
+ * is only computed once.
+ * <p>
+ * Lookups work on the raw characters or bytes of a key, without creating a
+ * string. The table is safe to share between threads without locking: symbols
+ * are immutable, so a thread which misses another's insert only pays for an
+ * extra allocation. When a slot is taken, the older symbol is evicted.
+ */
+public final class SymbolTable {
+
+	// keys longer than this are unlikely to repeat
+	private static final int MAX_LENGTH = 64;
+
+	private static volatile SymbolTable defaultTable = new SymbolTable(4096);
+
+	private final Symbol[] symbols;
+	private final int mask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a table.
+	 *
+	 * @param capacity The maximum number of symbols, rounded up to a power of
+	 *                 two.
+	 */
+	public SymbolTable(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+
+		int size = Integer.highestOneBit(capacity);
+
+		if (size < capacity) {
+			size <<= 1;
+		}
+
+		symbols = new Symbol[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Gets the table used for object keys by the parser.
+	 *
+	 * @return The table, or <code>null</code> if keys are not interned.
+	 */
+	public static @Nullable SymbolTable getDefault() {
+		return defaultTable;
+	}
+
+	/**
+	 * Sets the table used for object keys by the parser.
+	 *
+	 * @param table The table, or <code>null</code> to stop interning keys.
+	 */
+	public static void setDefault(@Nullable SymbolTable table) {
+		defaultTable = table;
+	}
+
+	/**
+	 * Gets the canonical instance of a string.
+	 *
+	 * @param string The string.
+	 * @return The canonical string.
+	 */
+	public @NotNull String intern(@NotNull String string) {
+		if (string.length() > MAX_LENGTH) {
+			return string;
+		}
+
+		int hash = string.hashCode();
+		int index = index(hash);
+
+		for (int probe = 0; probe < 2; probe++) {
+			Symbol symbol = symbols[(index + probe) & mask];
+
+			if (symbol != null && symbol.hash == hash && symbol.text.equals(string)) {
+				hits.increment();
+				return symbol.text;
+			}
+		}
+
+		return insert(index, string, hash);
+	}
+
+	/**
+	 * Gets the canonical string for a span of chars.
+	 */
+	String intern(char[] chars, int offset, int length) {
+		if (length > MAX_LENGTH) {
+			return new String(chars, offset, length);
+		}
+
+		int hash = 0;
+
+		for (int index = offset; index < offset + length; index++) {
+			hash = 31 * hash + chars[index];
+		}
+
+		int index = index(hash);
+
+		for (int probe = 0; probe < 2; probe++) {
+			Symbol symbol = symbols[(index + probe) & mask];
+
+			if (symbol != null && symbol.hash == hash && symbol.matches(chars, offset, length)) {
+				hits.increment();
+				return symbol.text;
+			}
+		}
+
+		return insert(index, new String(chars, offset, length), hash);
+	}
+
+	/**
+	 * Gets the canonical string for a span of ASCII bytes.
+	 */
+	String intern(byte[] ascii, int offset, int length) {
+		if (length > MAX_LENGTH) {
+			return new String(ascii, offset, length, StandardCharsets.ISO_8859_1);
+		}
+
+		int hash = 0;
+
+		for (int index = offset; index < offset + length; index++) {
+			hash = 31 * hash + ascii[index];
+		}
+
+		int index = index(hash);
+
+		for (int probe = 0; probe < 2; probe++) {
+			Symbol symbol = symbols[(index + probe) & mask];
+
+			if (symbol != null && symbol.hash == hash && symbol.matches(ascii, offset, length)) {
+				hits.increment();
+				return symbol.text;
+			}
+		}
+
+		return insert(index, new String(ascii, offset, length, StandardCharsets.ISO_8859_1), hash);
+	}
+
+	private int index(int hash) {
+		return (hash ^ hash >>> 16) & mask;
+	}
+
+	private String insert(int index, String text, int hash) {
+		misses.increment();
+
+		// fill the neighbouring slot before evicting from the first
+		if (symbols[index] != null && symbols[(index + 1) & mask] == null) {
+			index = (index + 1) & mask;
+		}
+
+		symbols[index] = new Symbol(text, hash);
+		return text;
+	}
+
+	/**
+	 * Gets the number of keys which were found in the table.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of keys which had to be allocated.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the proportion of lookups which found a key in the table.
+	 *
+	 * @return The ratio, from <code>0</code> to <code>1</code>.
+	 */
+	public double getHitRatio() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Resets the hit and miss counters.
+	 */
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+	}
+
+	public int getCapacity() {
+		return symbols.length;
+	}
+
+	private static final class Symbol {
+
+		final String text;
+		final int hash;
+
+		Symbol(String text, int hash) {
+			// String caches its hash, so computing it now saves every map lookup from doing so
+			text.hashCode();
+			this.text = text;
+			this.hash = hash;
+		}
+
+		boolean matches(char[] chars, int offset, int length) {
+			if (text.length() != length) {
+				return false;
+			}
+
+			for (int index = 0; index < length; index++) {
+				if (text.charAt(index) != chars[offset + index]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		boolean matches(byte[] ascii, int offset, int length) {
+			if (text.length() != length) {
+				return false;
+			}
+
+			for (int index = 0; index < length; index++) {
+				if (text.charAt(index) != ascii[offset + index]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,221 @@
+package io.toadlabs.jfgjds;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves the type variables in the declared types of fields, against the
+ * type which is being bound - so that the <code>T item</code> of a
+ * <code>Box&lt;T&gt;</code> is bound as an <code>Order</code> for a
+ * <code>Box&lt;Order&gt;</code>, or for a class which extends it.
+ */
+final class Types {
+
+	private Types() {
+		throw new UnsupportedOperationException("Object initialization");
+	}
+
+	/**
+	 * Resolves a type as it is seen from a class or parameterized type.
+	 *
+	 * @param type    The declared type.
+	 * @param context The type being bound, which declares or inherits it.
+	 * @return The type, with whatever type variables are known substituted.
+	 */
+	static Type resolve(Type type, Type context) {
+		return substitute(type, bindings(context));
+	}
+
+	/**
+	 * Gets whether there is a type variable anywhere in a type.
+	 */
+	static boolean hasVariable(Type type) {
+		if (type instanceof TypeVariable) {
+			return true;
+		} else if (type instanceof ParameterizedType) {
+			for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+				if (hasVariable(argument)) {
+					return true;
+				}
+			}
+		} else if (type instanceof GenericArrayType) {
+			return hasVariable(((GenericArrayType) type).getGenericComponentType());
+		} else if (type instanceof WildcardType) {
+			return hasVariable(((WildcardType) type).getUpperBounds()[0]);
+		}
+
+		return false;
+	}
+
+	private static Map<TypeVariable<?>, Type> bindings(Type context) {
+		Map<TypeVariable<?>, Type> result = new HashMap<>();
+		Class<?> raw = Codecs.erase(context);
+
+		if (context instanceof ParameterizedType) {
+			bind(raw, ((ParameterizedType) context).getActualTypeArguments(), result);
+		}
+
+		for (Class<?> current = raw; current != null; current = current.getSuperclass()) {
+			Type superclass = current.getGenericSuperclass();
+
+			if (superclass instanceof ParameterizedType) {
+				ParameterizedType parameterized = (ParameterizedType) superclass;
+				Type[] arguments = parameterized.getActualTypeArguments().clone();
+
+				for (int index = 0; index < arguments.length; index++) {
+					arguments[index] = substitute(arguments[index], result);
+				}
+
+				bind((Class<?>) parameterized.getRawType(), arguments, result);
+			}
+		}
+
+		return result;
+	}
+
+	private static void bind(Class<?> raw, Type[] arguments, Map<TypeVariable<?>, Type> result) {
+		TypeVariable<?>[] variables = raw.getTypeParameters();
+
+		for (int index = 0; index < variables.length; index++) {
+			result.put(variables[index], arguments[index]);
+		}
+	}
+
+	private static Type substitute(Type type, Map<TypeVariable<?>, Type> bindings) {
+		if (type instanceof TypeVariable) {
+			Type bound = bindings.get(type);
+			return bound == null ? type : bound;
+		} else if (type instanceof ParameterizedType) {
+			ParameterizedType parameterized = (ParameterizedType) type;
+			Type[] arguments = parameterized.getActualTypeArguments();
+			Type[] substituted = new Type[arguments.length];
+			boolean changed = false;
+
+			for (int index = 0; index < arguments.length; index++) {
+				substituted[index] = substitute(arguments[index], bindings);
+				changed |= substituted[index] != arguments[index];
+			}
+
+			return changed ? new Parameterized((Class<?>) parameterized.getRawType(), parameterized.getOwnerType(),
+					substituted) : type;
+		} else if (type instanceof GenericArrayType) {
+			Type component = ((GenericArrayType) type).getGenericComponentType();
+			Type substituted = substitute(component, bindings);
+
+			if (substituted == component) {
+				return type;
+			} else if (substituted instanceof Class) {
+				return Array.newInstance((Class<?>) substituted, 0).getClass();
+			}
+
+			return new GenericArray(substituted);
+		} else if (type instanceof WildcardType) {
+			// only read, so the upper bound is as good as the wildcard
+			return substitute(((WildcardType) type).getUpperBounds()[0], bindings);
+		}
+
+		return type;
+	}
+
+	// equal to, and hashed the same as, the JDK's own, since codecs are cached by type
+
+	private static final class Parameterized implements ParameterizedType {
+
+		private final Class<?> raw;
+		private final Type owner;
+		private final Type[] arguments;
+
+		Parameterized(Class<?> raw, Type owner, Type[] arguments) {
+			this.raw = raw;
+			this.owner = owner;
+			this.arguments = arguments;
+		}
+
+		@Override
+		public Type[] getActualTypeArguments() {
+			return arguments.clone();
+		}
+
+		@Override
+		public Type getRawType() {
+			return raw;
+		}
+
+		@Override
+		public Type getOwnerType() {
+			return owner;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ParameterizedType)) {
+				return false;
+			}
+
+			ParameterizedType other = (ParameterizedType) obj;
+			return raw.equals(other.getRawType()) && Objects.equals(owner, other.getOwnerType())
+					&& Arrays.equals(arguments, other.getActualTypeArguments());
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(arguments) ^ Objects.hashCode(owner) ^ raw.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder(raw.getTypeName()).append('<');
+
+			for (int index = 0; index < arguments.length; index++) {
+				if (index != 0) {
+					result.append(", ");
+				}
+
+				result.append(arguments[index].getTypeName());
+			}
+
+			return result.append('>').toString();
+		}
+
+	}
+
+	private static final class GenericArray implements GenericArrayType {
+
+		private final Type component;
+
+		GenericArray(Type component) {
+			this.component = component;
+		}
+
+		@Override
+		public Type getGenericComponentType() {
+			return component;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof GenericArrayType
+					&& component.equals(((GenericArrayType) obj).getGenericComponentType());
+		}
+
+		@Override
+		public int hashCode() {
+			return component.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return component.getTypeName() + "[]";
+		}
+
+	}
+
+}
@@ -0,0 +1,255 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Writer engine which encodes UTF-8 straight into its buffer. Without a sink,
+ * the buffer grows to hold the whole document instead.
+ */
+final class Utf8JsonWriter extends JsonWriter {
+
+	private static final int BUFFER_SIZE = 8192;
+	// the most bytes a single char can take, as \u0000
+	private static final int MAX_CHAR_BYTES = 6;
+
+	private OutputStream out;
+	private WritableByteChannel channel;
+	private ByteBuffer view;
+	private byte[] buffer = BufferPool.getDefault().takeBytes(BUFFER_SIZE);
+	private int pos;
+
+	Utf8JsonWriter() {
+	}
+
+	Utf8JsonWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	Utf8JsonWriter(WritableByteChannel channel) {
+		this.channel = channel;
+		view = ByteBuffer.wrap(buffer);
+	}
+
+	@Override
+	void writeRaw(char character) throws IOException {
+		if (pos == buffer.length) {
+			makeSpace(1);
+		}
+
+		buffer[pos++] = (byte) character;
+	}
+
+	@Override
+	void writeRaw(String string) throws IOException {
+		int length = string.length();
+
+		if (buffer.length - pos < length) {
+			makeSpace(length);
+		}
+
+		for (int index = 0; index < length; index++) {
+			buffer[pos++] = (byte) string.charAt(index);
+		}
+	}
+
+	@Override
+	void writeString(String string) throws IOException {
+		writeRaw('"');
+
+		int length = string.length();
+		int index = 0;
+
+		while (index < length) {
+			if (buffer.length - pos < MAX_CHAR_BYTES) {
+				makeSpace(MAX_CHAR_BYTES);
+			}
+
+			byte[] bytes = buffer;
+			int at = pos;
+			// ASCII takes one byte each, so this run can't overflow
+			int end = Math.min(length, index + bytes.length - at);
+			char character = 0;
+
+			while (index < end && (character = string.charAt(index)) < 0x80 && ESCAPES[character] == null) {
+				bytes[at++] = (byte) character;
+				index++;
+			}
+
+			pos = at;
+
+			if (index == end) {
+				continue;
+			}
+
+			if (buffer.length - pos < MAX_CHAR_BYTES) {
+				makeSpace(MAX_CHAR_BYTES);
+			}
+
+			if (character < 0x80) {
+				writeRaw(ESCAPES[character]);
+				index++;
+			} else if (character < 0x800) {
+				writeByte(0xC0 | character >> 6);
+				writeByte(0x80 | character & 0x3F);
+				index++;
+			} else if (!Character.isSurrogate(character)) {
+				writeByte(0xE0 | character >> 12);
+				writeByte(0x80 | character >> 6 & 0x3F);
+				writeByte(0x80 | character & 0x3F);
+				index++;
+			} else if (Character.isHighSurrogate(character) && index + 1 < length
+					&& Character.isLowSurrogate(string.charAt(index + 1))) {
+				int codePoint = Character.toCodePoint(character, string.charAt(index + 1));
+				writeByte(0xF0 | codePoint >> 18);
+				writeByte(0x80 | codePoint >> 12 & 0x3F);
+				writeByte(0x80 | codePoint >> 6 & 0x3F);
+				writeByte(0x80 | codePoint & 0x3F);
+				index += 2;
+			} else {
+				// unpaired surrogate, replaced as String.getBytes would
+				writeByte('?');
+				index++;
+			}
+		}
+
+		writeRaw('"');
+	}
+
+	private void writeByte(int value) {
+		buffer[pos++] = (byte) value;
+	}
+
+	@Override
+	void writeDouble(double value) throws IOException {
+		if (buffer.length - pos < DoubleConversion.MAX_LENGTH) {
+			makeSpace(DoubleConversion.MAX_LENGTH);
+		}
+
+		pos = DoubleConversion.format(value, buffer, pos);
+	}
+
+	@Override
+	void writeLong(long value) throws IOException {
+		if (buffer.length - pos < DoubleConversion.MAX_LONG_LENGTH) {
+			makeSpace(DoubleConversion.MAX_LONG_LENGTH);
+		}
+
+		pos = DoubleConversion.formatLong(value, buffer, pos);
+	}
+
+	@Override
+	void writeUtf8(byte[] bytes) throws IOException {
+		if (buffer.length - pos < bytes.length) {
+			if (out != null && bytes.length > buffer.length) {
+				// not worth copying through the buffer
+				flushBuffer(false);
+				out.write(bytes);
+				return;
+			}
+
+			makeSpace(bytes.length);
+		}
+
+		System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+		pos += bytes.length;
+	}
+
+	@Override
+	void writeName(JsonName name) throws IOException {
+		writeUtf8(name.utf8);
+	}
+
+	private void makeSpace(int required) throws IOException {
+		if (out != null || channel != null) {
+			flushBuffer(false);
+		}
+
+		if (buffer.length - pos < required) {
+			byte[] old = buffer;
+			buffer = Arrays.copyOf(old, Math.max(old.length << 1, pos + required));
+			BufferPool.getDefault().giveBytes(old);
+
+			if (channel != null) {
+				view = ByteBuffer.wrap(buffer);
+			}
+		}
+	}
+
+	@Override
+	void flushBuffer(boolean end) throws IOException {
+		if (buffer == null || pos == 0) {
+			return;
+		}
+
+		if (out != null) {
+			out.write(buffer, 0, pos);
+		} else if (channel != null) {
+			view.clear();
+			view.limit(pos);
+
+			while (view.hasRemaining()) {
+				channel.write(view);
+			}
+		} else {
+			// the buffer is the result
+			return;
+		}
+
+		pos = 0;
+	}
+
+	@Override
+	void flushSink() throws IOException {
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	@Override
+	void closeSink() throws IOException {
+		if (out != null) {
+			out.close();
+		} else if (channel != null) {
+			channel.close();
+		}
+	}
+
+	@Override
+	void recycle() {
+		if (buffer != null) {
+			BufferPool.getDefault().giveBytes(buffer);
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Copies out the document, when there is no sink.
+	 *
+	 * @return The UTF-8 bytes.
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(buffer, pos);
+	}
+
+	/**
+	 * Copies out the document, when there is no sink.
+	 *
+	 * @param direct <code>true</code> for a direct buffer.
+	 * @return The UTF-8 bytes, ready to be read.
+	 */
+	ByteBuffer toByteBuffer(boolean direct) {
+		if (!direct) {
+			return ByteBuffer.wrap(toByteArray());
+		}
+
+		ByteBuffer result = ByteBuffer.allocateDirect(pos);
+		result.put(buffer, 0, pos);
+		result.flip();
+		return result;
+	}
+
+}
@@ -0,0 +1,376 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.toadlabs.jfgjds.exception.JsonParseException;
+
+/**
+ * Parser engine for UTF-8 input. Structure is scanned straight from the bytes,
+ * and UTF-8 is only decoded within strings. Streams, direct buffers and mapped
+ * files are copied through a small chunk, which keeps the hot loop on a heap
+ * array.
+ */
+final class Utf8Parser extends Parser {
+
+	private static final int REPLACEMENT = 0xFFFD;
+	// mapped buffers are indexed by int, so larger files are mapped a window at a time
+	private static final long WINDOW_SIZE = 1 << 30;
+
+	InputStream in;
+	ByteBuffer source;
+	FileChannel channel;
+	// the range of the file which has not been mapped yet
+	long mapPosition;
+	long mapEnd;
+	int pos;
+	int limit;
+	byte[] buffer;
+	// only used when reading from a stream or a direct buffer
+	byte[] chunk;
+	// used to decode strings which cannot be copied straight from the buffer
+	char[] chars = new char[128];
+
+	Utf8Parser setup(byte[] in, int offset, int length) {
+		this.in = null;
+		source = null;
+		channel = null;
+		buffer = in;
+		pos = offset;
+		limit = offset + length;
+		symbols = SymbolTable.getDefault();
+		return this;
+	}
+
+	Utf8Parser setup(InputStream in) throws IOException {
+		this.in = in;
+		source = null;
+		channel = null;
+		symbols = SymbolTable.getDefault();
+		useChunk();
+		return this;
+	}
+
+	Utf8Parser setup(ByteBuffer in) throws IOException {
+		if (in.hasArray()) {
+			return setup(in.array(), in.arrayOffset() + in.position(), in.remaining());
+		}
+
+		this.in = null;
+		// don't move the caller's position
+		source = in.duplicate();
+		channel = null;
+		symbols = SymbolTable.getDefault();
+		useChunk();
+		return this;
+	}
+
+	/**
+	 * Sets up the parser to read a file from its current position, by mapping
+	 * it into memory. The position of the channel is left untouched.
+	 *
+	 * @param in The file.
+	 */
+	Utf8Parser setup(FileChannel in) throws IOException {
+		this.in = null;
+		source = null;
+		channel = in;
+		mapPosition = in.position();
+		mapEnd = in.size();
+		symbols = SymbolTable.getDefault();
+		useChunk();
+		return this;
+	}
+
+	@Override
+	void release() {
+		in = null;
+		source = null;
+		channel = null;
+		buffer = null;
+		pos = limit = 0;
+
+		if (!kept && chunk != null) {
+			BufferPool.getDefault().giveBytes(chunk);
+			chunk = null;
+		}
+
+		// so that one huge string doesn't stay pinned by a kept parser
+		if (chars.length > BufferPool.getDefault().getTypicalSize()) {
+			chars = new char[128];
+		}
+	}
+
+	private void useChunk() throws IOException {
+		if (chunk == null) {
+			chunk = BufferPool.getDefault().takeBytes(8192);
+		}
+
+		buffer = chunk;
+		fill();
+	}
+
+	private boolean fill() throws IOException {
+		int count = -1;
+
+		if (in != null) {
+			do {
+				count = in.read(buffer, 0, buffer.length);
+			} while (count == 0);
+		} else if ((source != null && source.hasRemaining()) || mapWindow()) {
+			count = Math.min(source.remaining(), buffer.length);
+			source.get(buffer, 0, count);
+		}
+
+		pos = 0;
+
+		if (count <= 0) {
+			limit = 0;
+			return false;
+		}
+
+		limit = count;
+		return true;
+	}
+
+	private boolean mapWindow() throws IOException {
+		if (channel == null || mapPosition >= mapEnd) {
+			return false;
+		}
+
+		long size = Math.min(WINDOW_SIZE, mapEnd - mapPosition);
+		source = channel.map(FileChannel.MapMode.READ_ONLY, mapPosition, size);
+		mapPosition += size;
+		return true;
+	}
+
+	@Override
+	int character() {
+		if (pos >= limit) {
+			return -1;
+		}
+
+		return buffer[pos] & 0xFF;
+	}
+
+	@Override
+	int read() throws IOException {
+		if (++pos < limit || fill()) {
+			return buffer[pos] & 0xFF;
+		}
+
+		return -1;
+	}
+
+	@Override
+	String readJString() throws IOException {
+		return readJString(false);
+	}
+
+	@Override
+	String readKey() throws IOException {
+		return readJString(symbols != null);
+	}
+
+	/**
+	 * Passes over a string, running through plain bytes straight from the
+	 * buffer. UTF-8 sequences need no checks to be passed over.
+	 */
+	@Override
+	void skipString() throws IOException {
+		assertCharacter('"');
+		read();
+
+		while (true) {
+			byte[] buffer = this.buffer;
+			int limit = this.limit;
+			int index = pos;
+			int value = 0;
+
+			while (index < limit && (value = buffer[index] & 0xFF) != '"' && value != '\\' && value >= 0x20) {
+				index++;
+			}
+
+			if (index == limit) {
+				pos = limit - 1;
+
+				if (read() == -1) {
+					throw new JsonParseException("Expected '\"' but got EOF");
+				}
+
+				continue;
+			}
+
+			pos = index;
+
+			if (value == '"') {
+				return;
+			} else if (value == '\\') {
+				skipEscape();
+				read();
+			} else {
+				throw new JsonParseException("Found unescaped control character within string");
+			}
+		}
+	}
+
+	private String readJString(boolean intern) throws IOException {
+		assertCharacter('"');
+
+		// fast path: the string is ASCII without escapes, and already buffered
+		byte[] buffer = this.buffer;
+		int start = pos + 1;
+
+		for (int index = start; index < limit; index++) {
+			byte value = buffer[index];
+
+			if (value == '"') {
+				pos = index;
+				return intern ? symbols.intern(buffer, start, index - start)
+						: new String(buffer, start, index - start, StandardCharsets.ISO_8859_1);
+			} else if (value < 0x20 || value == '\\') {
+				// bytes above 0x7F are negative
+				break;
+			}
+		}
+
+		return readJStringSlow(intern);
+	}
+
+	private String readJStringSlow(boolean intern) throws IOException {
+		char[] chars = this.chars;
+		int length = 0;
+		int character = read();
+
+		while (character != '"') {
+			if (chars.length - length < 2) {
+				chars = this.chars = Arrays.copyOf(chars, chars.length << 1);
+			}
+
+			if (character == -1) {
+				throw new JsonParseException("Expected '\"' but got EOF");
+			} else if (character < 0x20) {
+				throw new JsonParseException("Found unescaped control character within string");
+			} else if (character == '\\') {
+				chars[length++] = readEscape();
+			} else if (character < 0x80) {
+				chars[length++] = (char) character;
+			} else {
+				int codePoint = readCodePoint(character);
+
+				if (codePoint == -1) {
+					// the byte at the cursor was not a continuation, so it needs decoding again
+					chars[length++] = (char) REPLACEMENT;
+					character = character();
+					continue;
+				} else if (Character.isBmpCodePoint(codePoint)) {
+					chars[length++] = (char) codePoint;
+				} else {
+					chars[length++] = Character.highSurrogate(codePoint);
+					chars[length++] = Character.lowSurrogate(codePoint);
+				}
+			}
+
+			character = read();
+		}
+
+		return intern ? symbols.intern(chars, 0, length) : new String(chars, 0, length);
+	}
+
+	/**
+	 * Decodes a multi-byte sequence, leaving the cursor on its last byte.
+	 *
+	 * @param lead The first byte.
+	 * @return The code point, or <code>-1</code> if the sequence was cut short by
+	 *         the byte at the cursor.
+	 */
+	private int readCodePoint(int lead) throws IOException {
+		int remaining;
+		int codePoint;
+		int min;
+
+		if (lead >= 0xC2 && lead <= 0xDF) {
+			remaining = 1;
+			codePoint = lead & 0x1F;
+			min = 0x80;
+		} else if (lead >= 0xE0 && lead <= 0xEF) {
+			remaining = 2;
+			codePoint = lead & 0x0F;
+			min = 0x800;
+		} else if (lead >= 0xF0 && lead <= 0xF4) {
+			remaining = 3;
+			codePoint = lead & 0x07;
+			min = 0x10000;
+		} else {
+			return REPLACEMENT;
+		}
+
+		while (remaining-- > 0) {
+			int next = read();
+
+			// also catches EOF
+			if ((next & 0xC0) != 0x80) {
+				return -1;
+			}
+
+			codePoint = codePoint << 6 | next & 0x3F;
+		}
+
+		if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+				|| (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+			return REPLACEMENT;
+		}
+
+		return codePoint;
+	}
+
+	private char readEscape() throws IOException {
+		int seq = read();
+
+		switch (seq) {
+		case -1:
+			throw new JsonParseException("Expected an escape sequence but got EOF");
+		case '\\':
+		case '/':
+		case '"':
+			return (char) seq;
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'u':
+			int result = 0;
+
+			for (int index = 0; index < 4; index++) {
+				int digit = read();
+
+				if (digit == -1) {
+					throw new JsonParseException("Expected a hex sequence but got EOF");
+				}
+
+				int value = hexDigit(digit);
+
+				if (value == -1) {
+					throw new JsonParseException("Invalid character in hex sequence: '" + (char) digit + "'");
+				}
+
+				result = result << 4 | value;
+			}
+
+			return (char) result;
+		default:
+			throw new JsonParseException("Invalid escape sequence: \\" + (char) seq);
+		}
+	}
+
+}
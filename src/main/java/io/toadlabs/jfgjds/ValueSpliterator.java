@@ -0,0 +1,55 @@
+package io.toadlabs.jfgjds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import io.toadlabs.jfgjds.data.JsonValue;
+
+/**
+ * Reads consecutive top-level values with one parser, which is dedicated to the
+ * input so that it can be held between values.
+ */
+final class ValueSpliterator extends Spliterators.AbstractSpliterator<JsonValue> {
+
+	private Parser parser;
+
+	ValueSpliterator(Parser parser) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		this.parser = parser;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super JsonValue> action) {
+		if (parser == null) {
+			return false;
+		}
+
+		JsonValue value;
+
+		try {
+			value = parser.readNextValue();
+		} catch (IOException error) {
+			close();
+			throw new UncheckedIOException(error);
+		}
+
+		if (value == null) {
+			close();
+			return false;
+		}
+
+		action.accept(value);
+		return true;
+	}
+
+	void close() {
+		if (parser != null) {
+			parser.release();
+			parser = null;
+		}
+	}
+
+}
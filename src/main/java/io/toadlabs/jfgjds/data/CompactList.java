@@ -0,0 +1,441 @@
+package io.toadlabs.jfgjds.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The storage behind {@link JsonArray}. While every element is an integer it
+ * is kept in a long array, and while every element is a number it is kept in a
+ * double array, rather than as a {@link JsonNumber} each. The first element
+ * which doesn't fit moves everything into an array of values, for good.
+ * <p>
+ * Numbers in primitive storage are boxed into new JsonNumbers as they are
+ * read, so they compare equal but are not the same instances.
+ */
+final class CompactList extends AbstractList<JsonValue> implements RandomAccess {
+
+	private static final int EMPTY = 0;
+	private static final int LONGS = 1;
+	private static final int DOUBLES = 2;
+	private static final int VALUES = 3;
+
+	// every long of at most this magnitude is an exact double
+	private static final long MAX_EXACT = 1L << 53;
+
+	private int mode = EMPTY;
+	private long[] longs;
+	private double[] doubles;
+	private JsonValue[] values;
+	private int size;
+	// cleared on every change
+	volatile SerializedForm serialized;
+
+	CompactList() {
+	}
+
+	CompactList(Collection<? extends JsonValue> values) {
+		addAll(values);
+	}
+
+	/**
+	 * Copies the list with every value frozen, and no spare capacity. Numbers in
+	 * primitive storage stay primitive.
+	 */
+	CompactList frozenCopy() {
+		CompactList result = new CompactList();
+		result.mode = mode;
+		result.size = size;
+
+		switch (mode) {
+		case LONGS:
+			result.longs = Arrays.copyOf(longs, size);
+			break;
+		case DOUBLES:
+			result.doubles = Arrays.copyOf(doubles, size);
+			break;
+		case VALUES:
+			result.values = new JsonValue[size];
+
+			for (int index = 0; index < size; index++) {
+				JsonValue value = values[index];
+				result.values[index] = value == null ? null : value.freeze();
+			}
+			break;
+		default:
+			break;
+		}
+
+		return result;
+	}
+
+	long[] longStorage() {
+		return mode == LONGS ? longs : null;
+	}
+
+	double[] doubleStorage() {
+		return mode == DOUBLES ? doubles : null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public JsonValue get(int index) {
+		checkIndex(index, size);
+
+		switch (mode) {
+		case LONGS:
+			return new JsonNumber(longs[index]);
+		case DOUBLES:
+			return new JsonNumber(doubles[index]);
+		default:
+			return values[index];
+		}
+	}
+
+	double getDouble(int index) {
+		checkIndex(index, size);
+
+		switch (mode) {
+		case LONGS:
+			return longs[index];
+		case DOUBLES:
+			return doubles[index];
+		default:
+			return values[index].getNumberValue();
+		}
+	}
+
+	long getLong(int index) {
+		checkIndex(index, size);
+
+		switch (mode) {
+		case LONGS:
+			return longs[index];
+		case DOUBLES:
+			return (long) doubles[index];
+		default:
+			return values[index].getLongNumberValue();
+		}
+	}
+
+	@Override
+	public JsonValue set(int index, JsonValue value) {
+		checkIndex(index, size);
+		changed();
+		JsonValue old = get(index);
+
+		if (!store(index, value)) {
+			toValues();
+			values[index] = value;
+		}
+
+		return old;
+	}
+
+	@Override
+	public boolean add(JsonValue value) {
+		add(size, value);
+		return true;
+	}
+
+	@Override
+	public void add(int index, JsonValue value) {
+		checkIndex(index, size + 1);
+		makeRoom(index);
+
+		if (!store(index, value)) {
+			toValues();
+			values[index] = value;
+		}
+	}
+
+	void addLong(long value) {
+		makeRoom(size);
+		storeLong(size - 1, value);
+	}
+
+	void addDouble(double value) {
+		makeRoom(size);
+		storeDouble(size - 1, value);
+	}
+
+	/**
+	 * Stores a value without boxing it, if it suits the current mode.
+	 *
+	 * @return <code>false</code> if the storage must become values.
+	 */
+	private boolean store(int index, JsonValue value) {
+		if (mode != VALUES && value instanceof JsonNumber) {
+			JsonNumber number = (JsonNumber) value;
+
+			if (number.isLongBacked()) {
+				storeLong(index, number.getLongValue());
+				return true;
+			} else if (number.isDoubleBacked()) {
+				storeDouble(index, number.getDoubleValue());
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void storeLong(int index, long value) {
+		if (mode == LONGS) {
+			longs[index] = value;
+		} else if (mode == DOUBLES && isExact(value)) {
+			doubles[index] = value;
+		} else if (mode == VALUES || mode == DOUBLES) {
+			toValues();
+			values[index] = new JsonNumber(value);
+		} else {
+			// empty: the room is still to be made
+			toMode(LONGS);
+			longs[index] = value;
+		}
+	}
+
+	private void storeDouble(int index, double value) {
+		if (mode == LONGS && canWidenLongs()) {
+			toMode(DOUBLES);
+		} else if (mode == EMPTY) {
+			toMode(DOUBLES);
+		}
+
+		if (mode == DOUBLES) {
+			doubles[index] = value;
+		} else {
+			toValues();
+			values[index] = new JsonNumber(value);
+		}
+	}
+
+	private boolean canWidenLongs() {
+		for (int index = 0; index < size; index++) {
+			if (!isExact(longs[index])) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isExact(long value) {
+		return value >= -MAX_EXACT && value <= MAX_EXACT;
+	}
+
+	/**
+	 * Grows the storage by one and shifts along everything from the index. The
+	 * slot at the index is left with a stale value, to be overwritten.
+	 */
+	private void makeRoom(int index) {
+		changed();
+
+		switch (mode) {
+		case LONGS:
+			if (size == longs.length) {
+				longs = Arrays.copyOf(longs, size + (size >> 1));
+			}
+			System.arraycopy(longs, index, longs, index + 1, size - index);
+			break;
+		case DOUBLES:
+			if (size == doubles.length) {
+				doubles = Arrays.copyOf(doubles, size + (size >> 1));
+			}
+			System.arraycopy(doubles, index, doubles, index + 1, size - index);
+			break;
+		case VALUES:
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size + (size >> 1));
+			}
+			System.arraycopy(values, index, values, index + 1, size - index);
+			break;
+		default:
+			// allocated when the mode is chosen
+			break;
+		}
+
+		size++;
+		modCount++;
+	}
+
+	private void changed() {
+		SerializedForm form = serialized;
+
+		if (form != null) {
+			form.invalidate();
+		}
+	}
+
+	private Object storage() {
+		switch (mode) {
+		case LONGS:
+			return longs;
+		case DOUBLES:
+			return doubles;
+		case VALUES:
+			return values;
+		default:
+			return null;
+		}
+	}
+
+	private void toMode(int mode) {
+		int capacity = Math.max(8, size);
+
+		if (mode == LONGS) {
+			longs = new long[capacity];
+		} else {
+			double[] doubles = new double[capacity];
+
+			for (int index = 0; index < size && this.mode == LONGS; index++) {
+				doubles[index] = longs[index];
+			}
+
+			this.doubles = doubles;
+			longs = null;
+		}
+
+		this.mode = mode;
+	}
+
+	private void toValues() {
+		if (mode == VALUES) {
+			return;
+		}
+
+		JsonValue[] values = new JsonValue[Math.max(8, size + (size >> 1))];
+
+		for (int index = 0; index < size; index++) {
+			if (mode == LONGS) {
+				values[index] = new JsonNumber(longs[index]);
+			} else if (mode == DOUBLES) {
+				values[index] = new JsonNumber(doubles[index]);
+			}
+		}
+
+		this.values = values;
+		longs = null;
+		doubles = null;
+		mode = VALUES;
+	}
+
+	@Override
+	public JsonValue remove(int index) {
+		JsonValue old = get(index);
+		changed();
+		Object array = storage();
+		System.arraycopy(array, index + 1, array, index, size - index - 1);
+		size--;
+
+		if (mode == VALUES) {
+			values[size] = null;
+		}
+
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		changed();
+		mode = EMPTY;
+		longs = null;
+		doubles = null;
+		values = null;
+		size = 0;
+		modCount++;
+	}
+
+	double[] toDoubleArray() {
+		if (mode == DOUBLES) {
+			return Arrays.copyOf(doubles, size);
+		}
+
+		double[] result = new double[size];
+
+		for (int index = 0; index < size; index++) {
+			result[index] = getDouble(index);
+		}
+
+		return result;
+	}
+
+	long[] toLongArray() {
+		if (mode == LONGS) {
+			return Arrays.copyOf(longs, size);
+		}
+
+		long[] result = new long[size];
+
+		for (int index = 0; index < size; index++) {
+			result[index] = getLong(index);
+		}
+
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		if (mode != LONGS && mode != DOUBLES) {
+			return super.hashCode();
+		}
+
+		int result = 1;
+
+		for (int index = 0; index < size; index++) {
+			double value = mode == LONGS ? longs[index] : doubles[index];
+			// as JsonNumber.hashCode
+			result = 31 * result + Double.hashCode(value == 0 ? 0 : value);
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof CompactList) {
+			CompactList other = (CompactList) obj;
+
+			if (size != other.size) {
+				return false;
+			}
+
+			if (mode == LONGS && other.mode == LONGS) {
+				for (int index = 0; index < size; index++) {
+					if (longs[index] != other.longs[index]) {
+						return false;
+					}
+				}
+
+				return true;
+			} else if (mode == DOUBLES && other.mode == DOUBLES) {
+				for (int index = 0; index < size; index++) {
+					double value = doubles[index];
+					double otherValue = other.doubles[index];
+
+					// as JsonNumber.equals
+					if (value != otherValue && (value == value || otherValue == otherValue)) {
+						return false;
+					}
+				}
+
+				return true;
+			}
+		}
+
+		return super.equals(obj);
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+}
@@ -0,0 +1,371 @@
+package io.toadlabs.jfgjds.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The storage behind {@link JsonObject}: keys and values in parallel arrays,
+ * in insertion order. Small objects are searched linearly, which with interned
+ * keys is mostly identity checks. Past {@link #INDEX_THRESHOLD} keys, an
+ * open-addressed hash index into the arrays is kept alongside them, which
+ * removals leave to be rebuilt when it is next needed.
+ */
+final class CompactMap extends AbstractMap<String, JsonValue> {
+
+	private static final int INDEX_THRESHOLD = 8;
+
+	private static final String[] NO_KEYS = {};
+	private static final JsonValue[] NO_VALUES = {};
+
+	private String[] keys = NO_KEYS;
+	private JsonValue[] values = NO_VALUES;
+	private int size;
+	// position of each entry plus one, or 0 for an empty slot
+	private int[] index;
+	// set when removals have shifted entries, so the index is rebuilt on the next lookup
+	private boolean indexStale;
+	private int modCount;
+	private Set<Map.Entry<String, JsonValue>> entrySet;
+	// cleared on every change
+	volatile SerializedForm serialized;
+
+	CompactMap() {
+	}
+
+	CompactMap(Map<String, JsonValue> map) {
+		grow(map.size());
+		putAll(map);
+	}
+
+	/**
+	 * Copies the map with every value frozen, and no spare capacity.
+	 */
+	CompactMap frozenCopy() {
+		CompactMap result = new CompactMap();
+		result.keys = Arrays.copyOf(keys, size);
+		result.values = new JsonValue[size];
+		result.size = size;
+
+		for (int pos = 0; pos < size; pos++) {
+			JsonValue value = values[pos];
+			result.values[pos] = value == null ? null : value.freeze();
+		}
+
+		if (size > INDEX_THRESHOLD) {
+			result.buildIndex();
+		}
+
+		return result;
+	}
+
+	private int find(Object key) {
+		if (key == null) {
+			return -1;
+		}
+
+		if (index == null) {
+			String[] keys = this.keys;
+
+			for (int pos = 0; pos < size; pos++) {
+				String candidate = keys[pos];
+
+				if (candidate == key || candidate.equals(key)) {
+					return pos;
+				}
+			}
+
+			return -1;
+		}
+
+		if (indexStale) {
+			buildIndex();
+		}
+
+		int mask = index.length - 1;
+
+		for (int slot = slot(key.hashCode(), mask);; slot = slot + 1 & mask) {
+			int entry = index[slot];
+
+			if (entry == 0) {
+				return -1;
+			}
+
+			String candidate = keys[entry - 1];
+
+			if (candidate == key || candidate.equals(key)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	private static int slot(int hash, int mask) {
+		return (hash ^ hash >>> 16) & mask;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return find(key) != -1;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (int pos = 0; pos < size; pos++) {
+			if (value == null ? values[pos] == null : value.equals(values[pos])) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public JsonValue get(Object key) {
+		int pos = find(key);
+		return pos == -1 ? null : values[pos];
+	}
+
+	@Override
+	public JsonValue put(String key, JsonValue value) {
+		int pos = find(key);
+
+		if (pos != -1) {
+			changed();
+			JsonValue old = values[pos];
+			values[pos] = value;
+			return old;
+		}
+
+		if (key == null) {
+			throw new NullPointerException();
+		}
+
+		changed();
+
+		if (size == keys.length) {
+			grow(size + 1);
+		}
+
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		modCount++;
+
+		if (index != null) {
+			addToIndex(size - 1);
+		} else if (size > INDEX_THRESHOLD) {
+			buildIndex();
+		}
+
+		return null;
+	}
+
+	@Override
+	public JsonValue remove(Object key) {
+		int pos = find(key);
+
+		if (pos == -1) {
+			return null;
+		}
+
+		JsonValue old = values[pos];
+		removeAt(pos);
+		return old;
+	}
+
+	private void removeAt(int pos) {
+		changed();
+		int moved = size - pos - 1;
+		System.arraycopy(keys, pos + 1, keys, pos, moved);
+		System.arraycopy(values, pos + 1, values, pos, moved);
+		size--;
+		keys[size] = null;
+		values[size] = null;
+		modCount++;
+
+		if (index != null) {
+			// every later entry has shifted
+			if (size > INDEX_THRESHOLD) {
+				indexStale = true;
+			} else {
+				index = null;
+				indexStale = false;
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		changed();
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		index = null;
+		indexStale = false;
+		modCount++;
+	}
+
+	private void changed() {
+		SerializedForm form = serialized;
+
+		if (form != null) {
+			form.invalidate();
+		}
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super String, ? super JsonValue> action) {
+		int expected = modCount;
+
+		for (int pos = 0; pos < size; pos++) {
+			action.accept(keys[pos], values[pos]);
+
+			if (modCount != expected) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	private void grow(int required) {
+		int capacity = Math.max(required, keys.length == 0 ? 4 : keys.length + (keys.length >> 1));
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+
+		if (index != null) {
+			buildIndex();
+		}
+	}
+
+	private void buildIndex() {
+		// at most half full
+		int length = Integer.highestOneBit(Math.max(keys.length, INDEX_THRESHOLD) - 1) << 2;
+
+		if (index == null || index.length != length) {
+			index = new int[length];
+		} else {
+			Arrays.fill(index, 0);
+		}
+
+		for (int pos = 0; pos < size; pos++) {
+			addToIndex(pos);
+		}
+
+		indexStale = false;
+	}
+
+	private void addToIndex(int pos) {
+		int mask = index.length - 1;
+		int slot = slot(keys[pos].hashCode(), mask);
+
+		while (index[slot] != 0) {
+			slot = slot + 1 & mask;
+		}
+
+		index[slot] = pos + 1;
+	}
+
+	@Override
+	public Set<Map.Entry<String, JsonValue>> entrySet() {
+		Set<Map.Entry<String, JsonValue>> result = entrySet;
+
+		if (result == null) {
+			entrySet = result = new EntrySet();
+		}
+
+		return result;
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<String, JsonValue>> {
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			CompactMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Map.Entry<String, JsonValue>> iterator() {
+			return new EntryIterator();
+		}
+
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<String, JsonValue>> {
+
+		private int next;
+		private int last = -1;
+		private int expected = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Map.Entry<String, JsonValue> next() {
+			if (modCount != expected) {
+				throw new ConcurrentModificationException();
+			}
+
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+
+			last = next++;
+			return new Entry(last);
+		}
+
+		@Override
+		public void remove() {
+			if (last == -1) {
+				throw new IllegalStateException();
+			}
+
+			if (modCount != expected) {
+				throw new ConcurrentModificationException();
+			}
+
+			removeAt(last);
+			next = last;
+			last = -1;
+			expected = modCount;
+		}
+
+	}
+
+	private final class Entry extends SimpleEntry<String, JsonValue> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int pos;
+
+		Entry(int pos) {
+			super(keys[pos], values[pos]);
+			this.pos = pos;
+		}
+
+		@Override
+		public JsonValue setValue(JsonValue value) {
+			changed();
+			values[pos] = value;
+			return super.setValue(value);
+		}
+
+	}
+
+}
@@ -1,22 +1,38 @@
 package io.toadlabs.jfgjds.data;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import io.toadlabs.jfgjds.exception.JsonElementCastException;
 
+/**
+ * A JSON array. Arrays of numbers are stored as primitive longs or doubles
+ * until something else is added.
+ * <p>
+ * {@link #freeze()} makes an immutable copy, which is safe to share.
+ */
 public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 
-	private final List<JsonValue> list;
+	private final CompactList list;
+	// set for lazily loaded arrays, until they are first accessed
+	private Consumer<JsonArray> loader;
+	private volatile boolean lazy;
+	private final boolean frozen;
+	// only computed up front for frozen arrays
+	private final int hash;
 
 	public static final Function<String, JsonValue> DEFAULT_COMPUTION = (ignored) -> new JsonArray();
 
@@ -36,20 +52,74 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	}
 
 	public JsonArray() {
-		this(null);
+		this((List<JsonValue>) null);
 	}
 
 	public JsonArray(@Nullable List<@NotNull JsonValue> list) {
 		if (list == null) {
-			this.list = new ArrayList<>();
+			this.list = new CompactList();
 		} else {
-			this.list = new ArrayList<>(list);
+			this.list = new CompactList(list);
+		}
+
+		frozen = false;
+		hash = 0;
+	}
+
+	private JsonArray(CompactList frozenList) {
+		list = frozenList;
+		frozen = true;
+		hash = frozenList.hashCode();
+	}
+
+	/**
+	 * Creates an array which is filled in by the loader when it is first
+	 * accessed. Used by lazy documents; the loader must only call methods which
+	 * add values.
+	 *
+	 * @param loader The loader.
+	 * @return The array.
+	 */
+	@ApiStatus.Internal
+	public static @NotNull JsonArray lazy(@NotNull Consumer<JsonArray> loader) {
+		JsonArray result = new JsonArray();
+		result.loader = Objects.requireNonNull(loader);
+		result.lazy = true;
+		return result;
+	}
+
+	private CompactList list() {
+		if (lazy) {
+			load();
+		}
+
+		return list;
+	}
+
+	private CompactList mutableList() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Cannot modify a frozen JsonArray");
+		}
+
+		return list();
+	}
+
+	private void load() {
+		synchronized (this) {
+			Consumer<JsonArray> loader = this.loader;
+
+			// null while loading, so that the loader can add values
+			if (loader != null) {
+				this.loader = null;
+				loader.accept(this);
+				lazy = false;
+			}
 		}
 	}
 
 	@Override
 	public @NotNull Iterator<JsonValue> iterator() {
-		return list.iterator();
+		return getList().iterator();
 	}
 
 	/**
@@ -60,7 +130,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @throws IndexOutOfBoundsException If the index is out of range.
 	 */
 	public @NotNull JsonValue get(int index) throws IndexOutOfBoundsException {
-		return list.get(index);
+		return list().get(index);
 	}
 
 	/**
@@ -70,7 +140,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonArray add(@NotNull JsonValue value) {
-		list.add(value);
+		mutableList().add(value);
 		return this;
 	}
 
@@ -91,7 +161,19 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonArray add(double number) {
-		return add(new JsonNumber(number));
+		mutableList().addDouble(number);
+		return this;
+	}
+
+	/**
+	 * Adds an integer to the end of the array.
+	 *
+	 * @param number The number.
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonArray add(long number) {
+		mutableList().addLong(number);
+		return this;
 	}
 
 	/**
@@ -121,7 +203,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonArray add(int index, @NotNull JsonValue value) {
-		list.add(index, value);
+		mutableList().add(index, value);
 		return this;
 	}
 
@@ -175,7 +257,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonArray addAll(@NotNull JsonArray array) {
-		list.addAll(Objects.requireNonNull(array).list);
+		mutableList().addAll(Objects.requireNonNull(array).list());
 		return this;
 	}
 
@@ -187,7 +269,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @throws IndexOutOfBoundsException If the index is out of range.
 	 */
 	public @NotNull JsonArray remove(int index) throws IndexOutOfBoundsException {
-		list.remove(index);
+		mutableList().remove(index);
 		return this;
 	}
 
@@ -199,7 +281,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @throws IndexOutOfBoundsException If the index is out of range.
 	 */
 	public @NotNull JsonArray remove(@NotNull JsonValue value) throws IndexOutOfBoundsException {
-		list.remove(value);
+		mutableList().remove(value);
 		return this;
 	}
 
@@ -252,7 +334,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @return The size.
 	 */
 	public int size() {
-		return list.size();
+		return list().size();
 	}
 
 	/**
@@ -261,7 +343,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @return <code>true</code> if the size is <code>0</code>.
 	 */
 	public boolean isEmpty() {
-		return list.isEmpty();
+		return list().isEmpty();
 	}
 
 	/**
@@ -270,12 +352,12 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonArray clear() {
-		list.clear();
+		mutableList().clear();
 		return this;
 	}
 
 	public List<JsonValue> getList() {
-		return list;
+		return frozen ? Collections.unmodifiableList(list) : list();
 	}
 
 	@Override
@@ -284,15 +366,140 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 	}
 
 	public JsonValue[] toArray() {
-		return list.toArray(new JsonArray[0]);
+		return list().toArray(new JsonValue[0]);
+	}
+
+	/**
+	 * Copies the elements out as doubles, without boxing them if the array is
+	 * stored as numbers.
+	 *
+	 * @return The numbers.
+	 * @throws JsonElementCastException If an element is not a number.
+	 */
+	public double @NotNull [] toDoubleArray() {
+		return list().toDoubleArray();
+	}
+
+	/**
+	 * Copies the elements out as longs, truncating any fractions.
+	 *
+	 * @return The numbers.
+	 * @throws JsonElementCastException If an element is not a number.
+	 */
+	public long @NotNull [] toLongArray() {
+		return list().toLongArray();
+	}
+
+	/**
+	 * Streams the elements as doubles.
+	 *
+	 * @return The stream.
+	 * @throws JsonElementCastException If an element is not a number, once it is
+	 *                                  reached.
+	 */
+	public @NotNull DoubleStream doubles() {
+		CompactList list = list();
+		double[] doubles = list.doubleStorage();
+
+		if (doubles != null) {
+			return Arrays.stream(doubles, 0, list.size());
+		}
+
+		return IntStream.range(0, list.size()).mapToDouble(list::getDouble);
+	}
+
+	/**
+	 * Gets the backing array of an array of integers, which must not be
+	 * modified. Only the first {@link #size()} elements are in use.
+	 *
+	 * @return The storage, or <code>null</code> if the array is not stored as
+	 *         longs.
+	 */
+	@ApiStatus.Internal
+	public long @Nullable [] getLongStorage() {
+		return list().longStorage();
+	}
+
+	/**
+	 * Gets the backing array of an array of numbers, which must not be
+	 * modified. Only the first {@link #size()} elements are in use.
+	 *
+	 * @return The storage, or <code>null</code> if the array is not stored as
+	 *         doubles.
+	 */
+	@ApiStatus.Internal
+	public double @Nullable [] getDoubleStorage() {
+		return list().doubleStorage();
 	}
 
 	public Stream<JsonValue> stream() {
-		return list.stream();
+		return list().stream();
 	}
 
 	public Stream<JsonValue> parellelStream() {
-		return list.parallelStream();
+		return list().parallelStream();
+	}
+
+	/**
+	 * Gets a deeply immutable copy of the array, which can be shared between
+	 * threads without synchronisation. Its hash code is computed once, up front.
+	 *
+	 * @return The frozen array, or <code>this</code> if it is already frozen.
+	 */
+	@Override
+	public @NotNull JsonArray freeze() {
+		return frozen ? this : new JsonArray(list().frozenCopy());
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Keeps the serialized form of the array, and of everything within it, once
+	 * it has been written, so that later writes can copy it out rather than
+	 * encode it again. Changing anything clears the cached forms which include
+	 * the change, so only those parts are encoded again.
+	 * <p>
+	 * Forms are kept in UTF-8, and cost as much memory again as the output. An
+	 * object or array which is in more than one place is encoded every time,
+	 * along with everything around it.
+	 *
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonArray cacheSerialized() {
+		CompactList list = list();
+
+		if (list.serialized == null) {
+			list.serialized = new SerializedForm(null);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Gets the cached serialized form, if it is enabled.
+	 *
+	 * @return The form, or <code>null</code>.
+	 */
+	@ApiStatus.Internal
+	public @Nullable SerializedForm getSerializedForm() {
+		return list().serialized;
+	}
+
+	@Override
+	boolean linkSerializedForm(SerializedForm parent) {
+		CompactList list = list();
+		SerializedForm form = list.serialized;
+
+		if (form == null) {
+			// frozen arrays never change, so need no link
+			list.serialized = new SerializedForm(frozen ? null : parent);
+			return true;
+		}
+
+		return frozen || form.link(parent);
 	}
 
 	@Override
@@ -307,7 +514,7 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 
 	@Override
 	public int hashCode() {
-		return list.hashCode();
+		return frozen ? hash : list().hashCode();
 	}
 
 	@Override
@@ -321,7 +528,12 @@ public final class JsonArray extends JsonValue implements Iterable<JsonValue> {
 		}
 
 		JsonArray other = (JsonArray) obj;
-		return list.equals(other.list);
+
+		if (frozen && other.frozen && hash != other.hash) {
+			return false;
+		}
+
+		return list().equals(other.list());
 	}
 
 }
@@ -1,23 +1,170 @@
 package io.toadlabs.jfgjds.data;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+/**
+ * A JSON number, which is backed by either a double, a long, a BigDecimal, or
+ * the text it was parsed from. Parsed integers are stored as longs, and other
+ * parsed numbers keep their text until a value is requested, so no precision is
+ * lost and the number is written back out exactly as it was read.
+ * <p>
+ * Numbers compare by their exact values, taking a double as the decimal which
+ * {@link #getBigDecimalValue()} gives for it - so <code>0.1</code> is equal
+ * whether it was parsed or given as a double. Infinities, NaN, and numbers
+ * whose exponent is too large for a BigDecimal are only equal to numbers with
+ * the same double.
+ */
 public final class JsonNumber extends JsonValue {
 
-	private final double value;
+	private static final int DOUBLE = 0;
+	private static final int LONG = 1;
+	private static final int DECIMAL = 2;
+	private static final int LEXEME = 3;
+
+	private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE);
+	private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+
+	private final int kind;
+	private final long longValue;
+	private final String lexeme;
+	// converted lazily, unless this is backed by one of them
+	private double value;
+	private volatile boolean converted;
+	private volatile BigDecimal decimal;
 
 	public JsonNumber(@NotNull double value) {
 		this.value = Objects.requireNonNull(value);
+		kind = DOUBLE;
+		converted = true;
+		longValue = 0;
+		lexeme = null;
+	}
+
+	public JsonNumber(long value) {
+		kind = LONG;
+		longValue = value;
+		lexeme = null;
+	}
+
+	public JsonNumber(@NotNull BigDecimal value) {
+		kind = DECIMAL;
+		decimal = Objects.requireNonNull(value);
+		longValue = 0;
+		lexeme = null;
+	}
+
+	private JsonNumber(String lexeme, double value) {
+		kind = LEXEME;
+		longValue = 0;
+		this.lexeme = lexeme;
+
+		if (value == value) {
+			this.value = value;
+			converted = true;
+		}
+	}
+
+	/**
+	 * Creates a number from its JSON text, which is only interpreted when a
+	 * value is requested. The text is written back out as it is.
+	 *
+	 * @param lexeme The number.
+	 * @return The number.
+	 * @throws IllegalArgumentException If the text isn't a JSON number.
+	 */
+	public static @NotNull JsonNumber ofLexeme(@NotNull String lexeme) {
+		return ofLexeme(lexeme, Double.NaN);
+	}
+
+	/**
+	 * Creates a number from its JSON text, along with its value as a double if
+	 * the parser was able to work it out cheaply.
+	 *
+	 * @param lexeme The number.
+	 * @param value  The nearest double, or NaN to convert it on demand.
+	 * @return The number.
+	 * @throws IllegalArgumentException If the text isn't a JSON number.
+	 */
+	@ApiStatus.Internal
+	public static @NotNull JsonNumber ofLexeme(@NotNull String lexeme, double value) {
+		// it is written out as it is, so it mustn't be able to smuggle in anything else
+		if (!isNumber(Objects.requireNonNull(lexeme))) {
+			throw new IllegalArgumentException("Not a JSON number: " + lexeme);
+		}
+
+		return new JsonNumber(lexeme, value);
+	}
+
+	private static boolean isNumber(String lexeme) {
+		int length = lexeme.length();
+		int index = 0;
+
+		if (index < length && lexeme.charAt(index) == '-') {
+			index++;
+		}
+
+		if (index < length && lexeme.charAt(index) == '0') {
+			index++;
+		} else {
+			int start = index;
+			index = skipDigits(lexeme, index);
+
+			if (index == start) {
+				return false;
+			}
+		}
+
+		if (index < length && lexeme.charAt(index) == '.') {
+			int start = ++index;
+			index = skipDigits(lexeme, index);
+
+			if (index == start) {
+				return false;
+			}
+		}
+
+		if (index < length && (lexeme.charAt(index) == 'e' || lexeme.charAt(index) == 'E')) {
+			index++;
+
+			if (index < length && (lexeme.charAt(index) == '+' || lexeme.charAt(index) == '-')) {
+				index++;
+			}
+
+			int start = index;
+			index = skipDigits(lexeme, index);
+
+			if (index == start) {
+				return false;
+			}
+		}
+
+		return index == length;
+	}
+
+	private static int skipDigits(String lexeme, int index) {
+		while (index < lexeme.length() && lexeme.charAt(index) >= '0' && lexeme.charAt(index) <= '9') {
+			index++;
+		}
+
+		return index;
 	}
 
 	public double getValue() {
+		if (!converted) {
+			value = kind == LONG ? longValue : kind == LEXEME ? Double.parseDouble(lexeme) : decimal.doubleValue();
+			converted = true;
+		}
+
 		return value;
 	}
 
 	public byte getByteValue() {
-		return (byte) getValue();
+		return kind == DOUBLE ? (byte) value : (byte) getLongValue();
 	}
 
 	@Override
@@ -26,7 +173,7 @@ public final class JsonNumber extends JsonValue {
 	}
 
 	public short getShortValue() {
-		return (short) getValue();
+		return kind == DOUBLE ? (short) value : (short) getLongValue();
 	}
 
 	@Override
@@ -35,7 +182,7 @@ public final class JsonNumber extends JsonValue {
 	}
 
 	public int getIntValue() {
-		return (int) value;
+		return kind == DOUBLE ? (int) value : (int) getLongValue();
 	}
 
 	@Override
@@ -43,8 +190,48 @@ public final class JsonNumber extends JsonValue {
 		return getIntValue();
 	}
 
+	/**
+	 * Gets the value as a long, truncating any fraction and clamping to the range
+	 * of a long, as a cast from double would.
+	 *
+	 * @return The value.
+	 */
 	public long getLongValue() {
-		return (long) value;
+		switch (kind) {
+		case LONG:
+			return longValue;
+		case DOUBLE:
+			return (long) value;
+		default:
+			BigDecimal decimal = exactValue();
+
+			if (decimal == null || decimal.compareTo(MIN_LONG) < 0 || decimal.compareTo(MAX_LONG) > 0) {
+				return (long) getValue();
+			}
+
+			return decimal.longValue();
+		}
+	}
+
+	/**
+	 * Gets the value as a long, if it is an integer within the range of a long.
+	 *
+	 * @return The value.
+	 * @throws ArithmeticException If the value has a fraction or is out of
+	 *                             range.
+	 */
+	public long getLongValueExact() {
+		if (kind == LONG) {
+			return longValue;
+		}
+
+		BigDecimal decimal = exactValue();
+
+		if (decimal == null) {
+			throw new ArithmeticException("Out of range: " + this);
+		}
+
+		return decimal.longValueExact();
 	}
 
 	@Override
@@ -53,7 +240,7 @@ public final class JsonNumber extends JsonValue {
 	}
 
 	public float getFloatValue() {
-		return (float) value;
+		return kind == LEXEME ? Float.parseFloat(lexeme) : (float) getValue();
 	}
 
 	@Override
@@ -65,6 +252,93 @@ public final class JsonNumber extends JsonValue {
 		return getValue();
 	}
 
+	/**
+	 * Gets the exact value. A number backed by a double is converted through
+	 * its shortest representation, so <code>0.1</code> stays as
+	 * <code>0.1</code>.
+	 *
+	 * @return The value.
+	 * @throws NumberFormatException If the number is infinite, NaN, or its
+	 *                               exponent is too large for a BigDecimal.
+	 */
+	public @NotNull BigDecimal getBigDecimalValue() {
+		BigDecimal result = exactValue();
+
+		if (result == null) {
+			if (kind != DOUBLE) {
+				throw new NumberFormatException("Exponent out of range: " + lexeme);
+			}
+
+			result = BigDecimal.valueOf(value);
+		}
+
+		return result;
+	}
+
+	@Override
+	public @NotNull BigDecimal getBigDecimalNumberValue() {
+		return getBigDecimalValue();
+	}
+
+	/**
+	 * Gets the number as written in JSON, if it is backed by something more
+	 * exact than a double.
+	 *
+	 * @return The text, or <code>null</code> if this is backed by a double.
+	 */
+	public @Nullable String getLexeme() {
+		switch (kind) {
+		case LONG:
+			return Long.toString(longValue);
+		case DECIMAL:
+			return decimal.toString();
+		case LEXEME:
+			return lexeme;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Gets whether the number is backed by a long, so that it can be written
+	 * without formatting it to a string first.
+	 *
+	 * @return <code>true</code> if it is backed by a long.
+	 */
+	@ApiStatus.Internal
+	public boolean isLongBacked() {
+		return kind == LONG;
+	}
+
+	/**
+	 * Gets whether the number is backed by a double.
+	 *
+	 * @return <code>true</code> if it is backed by a double.
+	 */
+	@ApiStatus.Internal
+	public boolean isDoubleBacked() {
+		return kind == DOUBLE;
+	}
+
+	private @Nullable BigDecimal exactValue() {
+		BigDecimal result = decimal;
+
+		if (result == null) {
+			if (kind == LONG) {
+				decimal = result = BigDecimal.valueOf(longValue);
+			} else if (kind == LEXEME) {
+				try {
+					decimal = result = new BigDecimal(lexeme);
+				} catch (NumberFormatException error) {
+					// exponent overflows an int
+					return null;
+				}
+			}
+		}
+
+		return result;
+	}
+
 	@Override
 	public boolean isNumber() {
 		return true;
@@ -87,7 +361,11 @@ public final class JsonNumber extends JsonValue {
 
 	@Override
 	public int hashCode() {
-		return Double.hashCode(value);
+		// numbers with equal exact values always have the same nearest double, as
+		// that of a double's decimal is the double
+		double value = getValue();
+		// -0 is equal to 0
+		return Double.hashCode(value == 0 ? 0 : value);
 	}
 
 	@Override
@@ -101,7 +379,30 @@ public final class JsonNumber extends JsonValue {
 		}
 
 		JsonNumber other = (JsonNumber) obj;
-		return Double.doubleToLongBits(value) == Double.doubleToLongBits(other.value);
+
+		if (kind == LONG && other.kind == LONG) {
+			return longValue == other.longValue;
+		} else if (kind == DOUBLE && other.kind == DOUBLE) {
+			return value == other.value || value != value && other.value != other.value;
+		}
+
+		BigDecimal exact = exactOrNull();
+		BigDecimal otherExact = other.exactOrNull();
+
+		if (exact == null || otherExact == null) {
+			return exact == otherExact
+					&& Double.doubleToLongBits(getValue()) == Double.doubleToLongBits(other.getValue());
+		}
+
+		return exact.compareTo(otherExact) == 0;
+	}
+
+	private @Nullable BigDecimal exactOrNull() {
+		if (kind == DOUBLE) {
+			return Double.isInfinite(value) || value != value ? null : BigDecimal.valueOf(value);
+		}
+
+		return exactValue();
 	}
 
-}
\ No newline at end of file
+}
@@ -1,7 +1,8 @@
 package io.toadlabs.jfgjds.data;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -9,15 +10,29 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnknownNullability;
 
+/**
+ * A JSON object. Keys are kept in insertion order, and small objects are stored
+ * compactly in arrays rather than in a hash table.
+ * <p>
+ * {@link #freeze()} makes an immutable copy, which is safe to share.
+ */
 public final class JsonObject extends JsonValue {
 
-	private final Map<String, JsonValue> map;
+	private final CompactMap map;
+	// set for lazily loaded objects, until they are first accessed
+	private Consumer<JsonObject> loader;
+	private volatile boolean lazy;
+	private final boolean frozen;
+	// only computed up front for frozen objects
+	private final int hash;
 
 	public static final Function<String, JsonValue> DEFAULT_COMPUTION = (ignored) -> new JsonObject();
 
@@ -33,7 +48,7 @@ public final class JsonObject extends JsonValue {
 			throw new IllegalArgumentException("Uneven argument length");
 		}
 
-		Map<Object, Object> map = new HashMap<>();
+		Map<Object, Object> map = new LinkedHashMap<>();
 		Object key = null;
 		Object item;
 
@@ -63,14 +78,68 @@ public final class JsonObject extends JsonValue {
 	}
 
 	public JsonObject() {
-		this(null);
+		this((Map<String, JsonValue>) null);
 	}
 
 	public JsonObject(@Nullable Map<String, JsonValue> map) {
 		if (map == null) {
-			this.map = new HashMap<>();
+			this.map = new CompactMap();
 		} else {
-			this.map = new HashMap<>(map);
+			this.map = new CompactMap(map);
+		}
+
+		frozen = false;
+		hash = 0;
+	}
+
+	private JsonObject(CompactMap frozenMap) {
+		map = frozenMap;
+		frozen = true;
+		hash = frozenMap.hashCode();
+	}
+
+	/**
+	 * Creates an object which is filled in by the loader when it is first
+	 * accessed. Used by lazy documents; the loader must only call methods which
+	 * add values.
+	 *
+	 * @param loader The loader.
+	 * @return The object.
+	 */
+	@ApiStatus.Internal
+	public static @NotNull JsonObject lazy(@NotNull Consumer<JsonObject> loader) {
+		JsonObject result = new JsonObject();
+		result.loader = Objects.requireNonNull(loader);
+		result.lazy = true;
+		return result;
+	}
+
+	private CompactMap map() {
+		if (lazy) {
+			load();
+		}
+
+		return map;
+	}
+
+	private CompactMap mutableMap() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Cannot modify a frozen JsonObject");
+		}
+
+		return map();
+	}
+
+	private void load() {
+		synchronized (this) {
+			Consumer<JsonObject> loader = this.loader;
+
+			// null while loading, so that the loader can add values
+			if (loader != null) {
+				this.loader = null;
+				loader.accept(this);
+				lazy = false;
+			}
 		}
 	}
 
@@ -81,7 +150,7 @@ public final class JsonObject extends JsonValue {
 	 * @return The value, or <code>null</code>.
 	 */
 	public @Nullable JsonValue get(@NotNull String key) {
-		return map.get(Objects.requireNonNull(key));
+		return map().get(Objects.requireNonNull(key));
 	}
 
 	/**
@@ -102,7 +171,7 @@ public final class JsonObject extends JsonValue {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonObject put(@NotNull String key, @Nullable JsonValue value) {
-		map.put(Objects.requireNonNull(key), value);
+		mutableMap().put(Objects.requireNonNull(key), value);
 		return this;
 	}
 
@@ -156,7 +225,7 @@ public final class JsonObject extends JsonValue {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonObject putAll(@NotNull JsonObject object) {
-		map.putAll(Objects.requireNonNull(object).map);
+		mutableMap().putAll(Objects.requireNonNull(object).map());
 		return this;
 	}
 
@@ -167,7 +236,7 @@ public final class JsonObject extends JsonValue {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonObject remove(@NotNull String key) {
-		map.remove(key);
+		mutableMap().remove(key);
 		return this;
 	}
 
@@ -179,7 +248,7 @@ public final class JsonObject extends JsonValue {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public @NotNull JsonObject remove(@NotNull String key, @NotNull JsonValue value) {
-		map.remove(key, value);
+		mutableMap().remove(key, value);
 		return this;
 	}
 
@@ -223,7 +292,7 @@ public final class JsonObject extends JsonValue {
 	 * @return <code>true</code> if the key is present.
 	 */
 	public boolean contains(@NotNull String key) {
-		return map.containsKey(key);
+		return map().containsKey(key);
 	}
 
 	/**
@@ -233,7 +302,7 @@ public final class JsonObject extends JsonValue {
 	 * @return <code>true</code> if the value is present.
 	 */
 	public boolean contains(@NotNull JsonValue value) {
-		return map.containsValue(value);
+		return map().containsValue(value);
 	}
 
 	/**
@@ -242,43 +311,105 @@ public final class JsonObject extends JsonValue {
 	 * @return <code>this</code>, for chaining.
 	 */
 	public JsonObject clear() {
-		map.clear();
+		mutableMap().clear();
 		return this;
 	}
 
 	public @UnknownNullability JsonValue computeIfAbsent(@NotNull String key,
 			@NotNull Function<String, JsonValue> mappingFunction) {
-		return map.computeIfAbsent(key, mappingFunction);
+		return mutableMap().computeIfAbsent(key, mappingFunction);
 	}
 
 	public @UnknownNullability JsonValue computeIfPresent(@NotNull String key,
 			@NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> mappingFunction) {
-		return map.computeIfPresent(key, mappingFunction);
+		return mutableMap().computeIfPresent(key, mappingFunction);
 	}
 
 	public @UnknownNullability JsonValue compute(@NotNull String key,
 			@NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
-		return map.compute(key, remappingFunction);
+		return mutableMap().compute(key, remappingFunction);
 	}
 
 	public @NotNull Set<String> keys() {
-		return map.keySet();
+		return frozen ? Collections.unmodifiableSet(map.keySet()) : map().keySet();
 	}
 
 	public @NotNull Collection<JsonValue> values() {
-		return map.values();
+		return frozen ? Collections.unmodifiableCollection(map.values()) : map().values();
 	}
 
 	public @NotNull Set<Entry<String, JsonValue>> entries() {
-		return map.entrySet();
+		return frozen ? Collections.unmodifiableMap(map).entrySet() : map().entrySet();
 	}
 
 	public int size() {
-		return map.size();
+		return map().size();
 	}
 
 	public void forEach(@NotNull BiConsumer<String, JsonValue> action) {
-		map.forEach(action);
+		map().forEach(action);
+	}
+
+	/**
+	 * Gets a deeply immutable copy of the object, which can be shared between
+	 * threads without synchronisation. Its hash code is computed once, up front.
+	 *
+	 * @return The frozen object, or <code>this</code> if it is already frozen.
+	 */
+	@Override
+	public @NotNull JsonObject freeze() {
+		return frozen ? this : new JsonObject(map().frozenCopy());
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Keeps the serialized form of the object, and of everything within it, once
+	 * it has been written, so that later writes can copy it out rather than
+	 * encode it again. Changing anything clears the cached forms which include
+	 * the change, so only those parts are encoded again.
+	 * <p>
+	 * Forms are kept in UTF-8, and cost as much memory again as the output. An
+	 * object or array which is in more than one place is encoded every time,
+	 * along with everything around it.
+	 *
+	 * @return <code>this</code>, for chaining.
+	 */
+	public @NotNull JsonObject cacheSerialized() {
+		CompactMap map = map();
+
+		if (map.serialized == null) {
+			map.serialized = new SerializedForm(null);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Gets the cached serialized form, if it is enabled.
+	 *
+	 * @return The form, or <code>null</code>.
+	 */
+	@ApiStatus.Internal
+	public @Nullable SerializedForm getSerializedForm() {
+		return map().serialized;
+	}
+
+	@Override
+	boolean linkSerializedForm(SerializedForm parent) {
+		CompactMap map = map();
+		SerializedForm form = map.serialized;
+
+		if (form == null) {
+			// frozen objects never change, so need no link
+			map.serialized = new SerializedForm(frozen ? null : parent);
+			return true;
+		}
+
+		return frozen || form.link(parent);
 	}
 
 	@Override
@@ -298,7 +429,7 @@ public final class JsonObject extends JsonValue {
 
 	@Override
 	public int hashCode() {
-		return map.hashCode();
+		return frozen ? hash : map().hashCode();
 	}
 
 	@Override
@@ -312,7 +443,12 @@ public final class JsonObject extends JsonValue {
 		}
 
 		JsonObject other = (JsonObject) obj;
-		return map.equals(other.map);
+
+		if (frozen && other.frozen && hash != other.hash) {
+			return false;
+		}
+
+		return map().equals(other.map());
 	}
 
 }
\ No newline at end of file
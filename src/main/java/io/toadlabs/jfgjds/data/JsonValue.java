@@ -1,12 +1,12 @@
 package io.toadlabs.jfgjds.data;
 
-import java.util.List;
-import java.util.Map;
+import java.math.BigDecimal;
 import java.util.Optional;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import io.toadlabs.jfgjds.JsonAdapters;
 import io.toadlabs.jfgjds.JsonSerializer;
 import io.toadlabs.jfgjds.exception.JsonElementCastException;
 
@@ -23,26 +23,19 @@ import io.toadlabs.jfgjds.exception.JsonElementCastException;
  */
 public abstract class JsonValue {
 
-	public static @NotNull JsonValue coerce(Object value) {
+	/**
+	 * Converts any object to a JSON value, by the adapter for its class.
+	 *
+	 * @param value The object.
+	 * @return The JSON value.
+	 * @see JsonAdapters
+	 */
+	public static @NotNull JsonValue coerce(@Nullable Object value) {
 		if (value == null) {
 			return JsonNull.INSTANCE;
-		} else if (value instanceof JsonValue) {
-			return (JsonValue) value;
-		} else if (value instanceof String) {
-			return new JsonString((String) value);
-		} else if (value instanceof Number) {
-			return new JsonNumber(((Number) value).doubleValue());
-		} else if (value instanceof Boolean) {
-			return (boolean) value ? JsonBoolean.TRUE : JsonBoolean.FALSE;
-		} else if (value instanceof Map) {
-			return JsonObject.ofCoerced((Map<Object, Object>) value);
-		} else if (value instanceof List) {
-			return JsonArray.ofCoerced((List<Object>) value);
-		} else if (value instanceof Object[]) {
-			return JsonArray.of((Object[]) value);
-		} else {
-			return new JsonString(value.toString());
 		}
+
+		return JsonAdapters.get(value.getClass()).toJson(value);
 	}
 
 	/**
@@ -311,6 +304,18 @@ public abstract class JsonValue {
 		return Optional.ofNullable(getDoubleNumberValueOrNull());
 	}
 
+	public @NotNull BigDecimal getBigDecimalNumberValue() {
+		throw new JsonElementCastException("Not a JsonNumber: " + this + " (" + getPrimaryInterface() + ")");
+	}
+
+	public final @Nullable BigDecimal getBigDecimalNumberValueOrNull() {
+		return isNumber() ? getBigDecimalNumberValue() : null;
+	}
+
+	public final @NotNull Optional<BigDecimal> getBigDecimalNumberValueOpt() {
+		return Optional.ofNullable(getBigDecimalNumberValueOrNull());
+	}
+
 	/**
 	 * Gets whether the JSON value is a boolean.
 	 *
@@ -405,6 +410,37 @@ public abstract class JsonValue {
 		return false;
 	}
 
+	/**
+	 * Gets a deeply immutable version of the value, which can be shared between
+	 * threads without synchronisation. Scalars are already immutable, so they are
+	 * returned as they are.
+	 *
+	 * @return The frozen value.
+	 */
+	public @NotNull JsonValue freeze() {
+		return this;
+	}
+
+	/**
+	 * Gets whether the JSON value is immutable.
+	 *
+	 * @return <code>true</code> if this is a scalar or a frozen object or array.
+	 */
+	public boolean isFrozen() {
+		return true;
+	}
+
+	/**
+	 * Links the cached serialized form of an object or array to the form of what
+	 * contains it, creating it if needed.
+	 *
+	 * @param parent The form of the container.
+	 * @return <code>false</code> if it is already linked to another container.
+	 */
+	boolean linkSerializedForm(SerializedForm parent) {
+		return true;
+	}
+
 	@Override
 	public final String toString() {
 		return JsonSerializer.toString(this);
@@ -0,0 +1,69 @@
+package io.toadlabs.jfgjds.data;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The cached UTF-8 serialized form of an object or array, kept until it - or
+ * anything within it - is changed.
+ * <p>
+ * Each form is linked to the form of the one object or array which contains
+ * it, so that a change clears every cached form which includes it. An object or
+ * array which is found in a second place can't be linked to both, so whatever
+ * contains it there is not cached.
+ */
+@ApiStatus.Internal
+public final class SerializedForm {
+
+	private volatile byte[] bytes;
+	private SerializedForm parent;
+
+	SerializedForm(@Nullable SerializedForm parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Gets the cached bytes, which must not be modified.
+	 *
+	 * @return The bytes, or <code>null</code> if they need to be encoded again.
+	 */
+	public byte @Nullable [] get() {
+		return bytes;
+	}
+
+	public void set(byte @NotNull [] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Links the form of a value to this one, as it is written within it. Values
+	 * which are not objects or arrays never change, so need no link.
+	 *
+	 * @param child The value.
+	 * @return <code>false</code> if the value is already linked elsewhere, so
+	 *         this form must not be cached.
+	 */
+	public boolean adopt(@NotNull JsonValue child) {
+		return child.linkSerializedForm(this);
+	}
+
+	boolean link(SerializedForm parent) {
+		if (this.parent == null) {
+			this.parent = parent;
+			return true;
+		}
+
+		return this.parent == parent;
+	}
+
+	/**
+	 * Clears the cached bytes, and those of everything this is within.
+	 */
+	void invalidate() {
+		for (SerializedForm form = this; form != null; form = form.parent) {
+			form.bytes = null;
+		}
+	}
+
+}
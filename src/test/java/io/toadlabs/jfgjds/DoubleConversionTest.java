@@ -0,0 +1,143 @@
+package io.toadlabs.jfgjds;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DoubleConversionTest {
+
+	private static final int RANDOM_COUNT = 100_000;
+
+	@Test
+	public void formatsBoundaries() {
+		for (double value : boundaries()) {
+			assertFormats(value);
+		}
+	}
+
+	@Test
+	public void formatsRandomDoubles() {
+		Random random = new Random(42);
+
+		for (int index = 0; index < RANDOM_COUNT; index++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+
+			if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+				assertFormats(value);
+			}
+		}
+	}
+
+	@Test
+	public void parsesBoundaries() throws IOException {
+		for (double value : boundaries()) {
+			assertParses(new BigDecimal(value).toString());
+			assertParses(Double.toString(value));
+		}
+	}
+
+	@Test
+	public void parsesHalfwayCases() throws IOException {
+		for (double value : boundaries()) {
+			if (value >= 0 && value < Double.MAX_VALUE) {
+				// exactly between two doubles, and just either side of it
+				BigDecimal halfway = new BigDecimal(value).add(new BigDecimal(Math.nextUp(value)))
+						.divide(BigDecimal.valueOf(2));
+				BigDecimal nudge = halfway.ulp().movePointLeft(5);
+
+				assertParses(halfway.toString());
+				assertParses(halfway.subtract(nudge).toString());
+				assertParses(halfway.add(nudge).toString());
+			}
+		}
+
+		// 2^53 + 1, which rounds to even
+		assertParses("9007199254740993");
+		assertParses("9007199254740993e-10");
+	}
+
+	@Test
+	public void parsesRandomDoubles() throws IOException {
+		Random random = new Random(42);
+
+		for (int index = 0; index < RANDOM_COUNT; index++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+
+			if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+				assertParses(Double.toString(value));
+			}
+		}
+	}
+
+	@Test
+	public void parsesOutOfRange() throws IOException {
+		assertParses("1e400");
+		assertParses("1.7976931348623159e308");
+		assertParses("1e-400");
+		assertParses("2.4703282292062327e-324");
+		assertParses("2.4703282292062328e-324");
+	}
+
+	private static List<Double> boundaries() {
+		List<Double> result = new ArrayList<>();
+		double[] values = { 0.0, Double.MIN_VALUE, 2 * Double.MIN_VALUE, 3 * Double.MIN_VALUE,
+				Math.nextDown(Double.MIN_NORMAL), Double.MIN_NORMAL, Math.nextUp(Double.MIN_NORMAL),
+				Double.longBitsToDouble(0x0008000000000000L), Double.MAX_VALUE, Math.nextDown(Double.MAX_VALUE), 0.1,
+				0.3, 1.0 / 3, 1.0, Math.nextDown(1.0), Math.nextUp(1.0), 1e21, 1e22, 1e23, 5e-324, 9007199254740992.0,
+				9007199254740994.0, Long.MAX_VALUE, 123456789012345680.0, 1e-7, 1e-6, 2.2250738585072011e-308 };
+
+		for (double value : values) {
+			result.add(value);
+			result.add(-value);
+		}
+
+		return result;
+	}
+
+	private static void assertFormats(double value) {
+		byte[] out = new byte[DoubleConversion.MAX_LENGTH];
+		String text = new String(out, 0, DoubleConversion.format(value, out, 0), StandardCharsets.US_ASCII);
+
+		assertEquals(text, Double.doubleToLongBits(value), Double.doubleToLongBits(Double.parseDouble(text)));
+	}
+
+	private static void assertParses(String text) throws IOException {
+		long expected = Double.doubleToLongBits(Double.parseDouble(text));
+		double converted = convert(text);
+
+		// NaN only asks the parser to fall back
+		if (converted == converted) {
+			assertEquals(text, expected, Double.doubleToLongBits(converted));
+		}
+
+		// and through both engines, which fall back themselves
+		assertEquals(text, expected,
+				Double.doubleToLongBits(JsonDeserializer.fromString(text).asNumber().getValue()));
+		assertEquals(text, expected, Double.doubleToLongBits(
+				JsonDeserializer.read(text.getBytes(StandardCharsets.UTF_8)).asNumber().getValue()));
+	}
+
+	// gathers the digits as the parser does
+	private static double convert(String text) {
+		BigDecimal decimal = new BigDecimal(text);
+		String digits = decimal.unscaledValue().abs().toString();
+		int exponent = -decimal.scale();
+		boolean truncated = false;
+
+		if (digits.length() > 19) {
+			exponent += digits.length() - 19;
+			truncated = !digits.substring(19).matches("0*");
+			digits = digits.substring(0, 19);
+		}
+
+		return DoubleConversion.parse(text.startsWith("-"), Long.parseUnsignedLong(digits), exponent, truncated);
+	}
+
+}